@@ -0,0 +1,106 @@
+package yoyo.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import yoyo.command.CommandFactory;
+import yoyo.exception.YoyoException;
+import yoyo.parser.Parser;
+import yoyo.task.TaskList;
+import yoyo.task.Todo;
+import yoyo.ui.Ui;
+
+/**
+ * Compares the per-line time of the regex-based command parsing and
+ * per-line command objects used before with the single-pass
+ * {@link Parser#parse} and the shared handlers run by
+ * {@link CommandFactory#execute}. Run with the {@code gc} profiler to
+ * compare the allocation per line as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandParserBenchmark {
+
+    // Commands that leave the list as it was, so that every call does the same work
+    private static final String[] LINES = {
+        "mark 3",
+        "  UNMARK   3 ",
+        "find milk 1",
+        "upcoming 2",
+        "Mark #5",
+        "unmark #5",
+    };
+
+    private TaskList tasks;
+    private Ui ui;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new Todo("buy milk " + i));
+        }
+        // The commands print their results; keep that out of the measurement
+        ui = new Ui(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void parse(Blackhole bh) {
+        for (String line : LINES) {
+            bh.consume(Parser.parse(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void legacyParse(Blackhole bh) {
+        for (String line : LINES) {
+            bh.consume(legacyParse(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void sharedHandlers() throws YoyoException {
+        for (String line : LINES) {
+            Parser.Parsed parsed = Parser.parse(line);
+            CommandFactory.execute(parsed.cmd, parsed.args, tasks, ui);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void legacyCommands() throws YoyoException {
+        for (String line : LINES) {
+            Parser.Parsed parsed = legacyParse(line);
+            CommandFactory.createCommand(parsed.cmd, parsed.args, tasks, ui).execute();
+        }
+    }
+
+    // The parsing previously done by Parser.parse
+    private static Parser.Parsed legacyParse(String input) {
+        String[] parts = input.trim().split("\\s+", 2);
+        String cmd = parts[0].toLowerCase();
+        String args = parts.length > 1 ? parts[1] : "";
+        return new Parser.Parsed(cmd, args);
+    }
+}
@@ -0,0 +1,129 @@
+package yoyo.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import yoyo.util.Constants;
+import yoyo.util.DateTimeUtil;
+
+/**
+ * Compares the per-string cost of the formatter-based date parsing used
+ * before with {@link DateTimeUtil#parseFlexibleDateTime}, both for distinct
+ * strings, which the digit scanner handles, and for a few repeated ones,
+ * which are remembered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateParserBenchmark {
+
+    private static final int STRINGS = 8192;
+
+    // How many of the strings are distinct: all of them, or a few repeated ones
+    @Param({"8192", "50"})
+    public int variety;
+
+    private String[] dates;
+
+    // Cycles through the four common formats
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] pool = new String[variety];
+        for (int i = 0; i < variety; i++) {
+            int year = 2000 + random.nextInt(30);
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            int hour = random.nextInt(24);
+            int minute = random.nextInt(60);
+            pool[i] = switch (i % 4) {
+                case 0 -> String.format("%04d-%02d-%02d %02d%02d", year, month, day, hour, minute);
+                case 1 -> String.format("%d/%d/%04d %02d%02d", day, month, year, hour, minute);
+                case 2 -> String.format("%04d-%02d-%02d", year, month, day);
+                default -> String.format("%d/%d/%04d", day, month, year);
+            };
+        }
+        dates = new String[STRINGS];
+        for (int i = 0; i < STRINGS; i++) {
+            dates[i] = pool[i % variety];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STRINGS)
+    public void scanner(Blackhole bh) {
+        for (String date : dates) {
+            bh.consume(DateTimeUtil.parseFlexibleDateTime(date));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STRINGS)
+    public void formatters(Blackhole bh) {
+        for (String date : dates) {
+            bh.consume(parseWithFormatters(date));
+        }
+    }
+
+    // The parsing previously done by DateTimeUtil.parseFlexibleDateTime
+    private static LocalDateTime parseWithFormatters(String raw) {
+        String s = raw.trim();
+        Optional<LocalDateTime> dateTimeResult = Arrays.stream(new DateTimeFormatter[]{
+            DateTimeFormatter.ofPattern(Constants.DATETIME_FORMAT_STORAGE),
+            DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT + " HHmm"),
+            DateTimeFormatter.ofPattern(Constants.DATETIME_FORMAT_OUTPUT)
+        })
+                .map(formatter -> {
+                    try {
+                        return LocalDateTime.parse(s, formatter);
+                    } catch (DateTimeParseException e) {
+                        return null;
+                    }
+                })
+                .filter(result -> result != null)
+                .findFirst();
+        if (dateTimeResult.isPresent()) {
+            return dateTimeResult.get();
+        }
+
+        return Arrays.stream(new DateTimeFormatter[]{
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT)
+        })
+                .map(formatter -> {
+                    try {
+                        return LocalDateTime.of(LocalDate.parse(s, formatter), LocalTime.MIDNIGHT);
+                    } catch (DateTimeParseException e) {
+                        return null;
+                    }
+                })
+                .filter(result -> result != null)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        String.format(Constants.ERR_UNRECOGNIZED_DATE, raw)));
+    }
+}
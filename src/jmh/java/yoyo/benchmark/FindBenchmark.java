@@ -0,0 +1,84 @@
+package yoyo.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import yoyo.task.Task;
+import yoyo.task.TaskList;
+import yoyo.task.Todo;
+
+/**
+ * Compares the per-query cost of scanning every description, as
+ * {@code TaskList.find} did before, with the keyword index it uses now.
+ * The index is built during setup, so only the queries are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class FindBenchmark {
+
+    private static final String[] WORDS = {
+        "read", "book", "return", "meeting", "project", "groceries", "call", "mom", "submit", "report",
+        "gym", "pay", "rent", "fix", "bike", "plan", "trip", "email", "boss", "review",
+    };
+
+    private static final String[] QUERIES = {"#123456", "#99999", "#4242", "#77"};
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private TaskList tasks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        tasks = new TaskList();
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Todo(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " #" + i));
+        }
+        tasks.find("#0");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void index(Blackhole bh) {
+        for (String query : QUERIES) {
+            bh.consume(tasks.find(query));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void scan(Blackhole bh) {
+        for (String query : QUERIES) {
+            bh.consume(scan(tasks.asList(), query));
+        }
+    }
+
+    // The search previously done by TaskList.find
+    private static List<Task> scan(List<Task> tasks, String keyword) {
+        return tasks.stream()
+                .filter(task -> task.getDescription().toLowerCase().contains(keyword.toLowerCase()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package yoyo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import yoyo.storage.LineParser;
+import yoyo.task.Deadline;
+import yoyo.task.Event;
+import yoyo.task.Task;
+import yoyo.task.Todo;
+import yoyo.util.Constants;
+
+/**
+ * Compares the per-line cost of the regex-based snapshot parsing used before
+ * with the single-pass {@link LineParser}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LineParserBenchmark {
+
+    private static final int LINES = 4096;
+
+    private static final Pattern TODO_P = Pattern.compile(Constants.REGEX_TODO);
+    private static final Pattern DEADLINE_P = Pattern.compile(Constants.REGEX_DEADLINE);
+    private static final Pattern EVENT_P = Pattern.compile(Constants.REGEX_EVENT);
+
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        Task[] samples = {
+            new Todo("read book", true),
+            new Deadline("return book (by: friday)", "2019-12-02 1800"),
+            new Event("project meeting", "2019-12-02 1400", "2019-12-02 1600"),
+            new Todo("buy groceries for the week"),
+        };
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = samples[i % samples.length].toString();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void scanner(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(LineParser.parse(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void regex(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(parseWithRegex(line));
+        }
+    }
+
+    // The parsing previously done by Storage.parseLine
+    private static Task parseWithRegex(String line) {
+        Task task;
+        Matcher m = TODO_P.matcher(line);
+        if (m.matches()) {
+            task = new Todo(m.group(2));
+        } else if ((m = DEADLINE_P.matcher(line)).matches()) {
+            task = new Deadline(m.group(2), m.group(3));
+        } else if ((m = EVENT_P.matcher(line)).matches()) {
+            task = new Event(m.group(2), m.group(3), m.group(4));
+        } else {
+            throw new IllegalArgumentException("Unrecognized format: " + line);
+        }
+        if (String.valueOf(Constants.STATUS_DONE).equals(m.group(1))) {
+            task = task.withDone(true);
+        }
+        return task;
+    }
+}
@@ -1,20 +1,55 @@
 package yoyo.command;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import yoyo.exception.YoyoException;
+import yoyo.parser.Parser;
 import yoyo.task.Deadline;
 import yoyo.task.Event;
+import yoyo.task.SortOrder;
 import yoyo.task.Task;
 import yoyo.task.TaskList;
 import yoyo.task.Todo;
 import yoyo.ui.Ui;
 import yoyo.util.Constants;
+import yoyo.util.DateTimeUtil;
 
 /**
  * Factory class for creating command objects based on user input. Implements
  * the Factory pattern to encapsulate command creation logic.
+ *
+ * <p>Each command is carried out by a stateless handler that receives the
+ * arguments, task list and UI when it runs, so one instance per command
+ * serves every line. {@link #execute} runs a command without allocating a
+ * {@link Command} at all, for scripts of many lines.
  */
 public class CommandFactory {
 
+    /**
+     * Carries out one kind of command, given everything it needs.
+     */
+    private interface Handler {
+
+        boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException;
+    }
+
+    private static final Handler LIST = new ListHandler();
+    private static final Handler HELP = new HelpHandler();
+    private static final Handler ADD_TODO = new AddTodoHandler();
+    private static final Handler ADD_DEADLINE = new AddDeadlineHandler();
+    private static final Handler ADD_EVENT = new AddEventHandler();
+    private static final Handler MARK = new MarkHandler();
+    private static final Handler UNMARK = new UnmarkHandler();
+    private static final Handler DELETE = new DeleteHandler();
+    private static final Handler FIND = new FindHandler();
+    private static final Handler SORT = new SortHandler();
+    private static final Handler ON = new OnHandler();
+    private static final Handler DUE = new DueHandler();
+    private static final Handler UPCOMING = new UpcomingHandler();
+    private static final Handler OVERDUE = new OverdueHandler();
+    private static final Handler EXIT = new ExitHandler();
+
     /**
      * Creates a command instance based on the command name and arguments.
      *
@@ -26,132 +61,118 @@ public class CommandFactory {
      * @throws IllegalArgumentException if the command is unknown
      */
     public static Command createCommand(String commandName, String args, TaskList tasks, Ui ui) {
+        Handler handler = handlerFor(commandName);
+        return () -> handler.execute(args, tasks, ui);
+    }
+
+    /**
+     * Executes a command directly, without creating a command instance.
+     *
+     * @param commandName the name of the command (e.g., "list", "todo")
+     * @param args the arguments for the command
+     * @param tasks the task list to operate on
+     * @param ui the UI instance for user interaction
+     * @return true if the application should exit after this command, false
+     * otherwise
+     * @throws YoyoException if there's an application-specific error during
+     * execution
+     * @throws IllegalArgumentException if the command is unknown
+     */
+    public static boolean execute(String commandName, String args, TaskList tasks, Ui ui) throws YoyoException {
+        return handlerFor(commandName).execute(args, tasks, ui);
+    }
+
+    private static Handler handlerFor(String commandName) {
         return switch (commandName) {
             case Constants.CMD_LIST ->
-                new ListCommand(tasks, ui);
+                LIST;
             case Constants.CMD_HELP ->
-                new HelpCommand(ui);
+                HELP;
             case Constants.CMD_TODO ->
-                new AddTodoCommand(args, tasks, ui);
+                ADD_TODO;
             case Constants.CMD_DEADLINE ->
-                new AddDeadlineCommand(args, tasks, ui);
+                ADD_DEADLINE;
             case Constants.CMD_EVENT ->
-                new AddEventCommand(args, tasks, ui);
+                ADD_EVENT;
             case Constants.CMD_MARK ->
-                new MarkCommand(args, tasks, ui);
+                MARK;
             case Constants.CMD_UNMARK ->
-                new UnmarkCommand(args, tasks, ui);
+                UNMARK;
             case Constants.CMD_DELETE ->
-                new DeleteCommand(args, tasks, ui);
+                DELETE;
             case Constants.CMD_FIND ->
-                new FindCommand(args, tasks, ui);
-            case "sort" ->
-                new SortCommand(args, tasks, ui);
+                FIND;
+            case Constants.CMD_SORT ->
+                SORT;
+            case Constants.CMD_ON ->
+                ON;
+            case Constants.CMD_DUE ->
+                DUE;
+            case Constants.CMD_UPCOMING ->
+                UPCOMING;
+            case Constants.CMD_OVERDUE ->
+                OVERDUE;
             case Constants.CMD_BYE, Constants.CMD_EXIT, Constants.CMD_QUIT ->
-                new ExitCommand(ui);
+                EXIT;
             default ->
                 throw new IllegalArgumentException(Constants.ERR_UNKNOWN_COMMAND + commandName);
         };
     }
 
-    // Command implementations
-    private static class ListCommand implements Command {
-
-        private final TaskList tasks;
-        private final Ui ui;
-
-        ListCommand(TaskList tasks, Ui ui) {
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    // Command handlers, one shared instance each
+    private static class ListHandler implements Handler {
 
         @Override
-        public boolean execute() {
-            ui.showList(tasks.asList());
+        public boolean execute(String args, TaskList tasks, Ui ui) {
+            ui.showList(tasks.snapshot());
             return false;
         }
     }
 
-    private static class HelpCommand implements Command {
-
-        private final Ui ui;
-
-        HelpCommand(Ui ui) {
-            this.ui = ui;
-        }
+    private static class HelpHandler implements Handler {
 
         @Override
-        public boolean execute() {
+        public boolean execute(String args, TaskList tasks, Ui ui) {
             ui.showHelp();
             return false;
         }
     }
 
-    private static class AddTodoCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
-
-        AddTodoCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    private static class AddTodoHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
             if (args.isEmpty()) {
                 throw new YoyoException(Constants.ERR_TODO_NEEDS_DESC);
             }
-            Task task = new Todo(args);
+            Task task = new Todo(Parser.checkDescription(args));
             tasks.add(task);
             ui.showAdded(task, tasks.size());
             return false;
         }
     }
 
-    private static class AddDeadlineCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
-
-        AddDeadlineCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    private static class AddDeadlineHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
             if (!args.contains(Constants.ARG_BY)) {
                 throw new YoyoException(Constants.ERR_DEADLINE_USAGE);
             }
             String[] parts = args.split(Constants.ARG_BY, 2);
             String description = parts[0].trim();
             String by = parts[1].trim();
-            Task task = new Deadline(description, by);
+            Task task = new Deadline(Parser.checkDescription(description), by);
             tasks.add(task);
             ui.showAdded(task, tasks.size());
             return false;
         }
     }
 
-    private static class AddEventCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
-
-        AddEventCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    private static class AddEventHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
             if (!args.contains(Constants.ARG_FROM) || !args.contains(Constants.ARG_TO)) {
                 throw new YoyoException(Constants.ERR_EVENT_USAGE);
             }
@@ -160,118 +181,156 @@ public class CommandFactory {
             String[] secondSplit = firstSplit[1].split(Constants.ARG_TO, 2);
             String from = secondSplit[0].trim();
             String to = secondSplit[1].trim();
-            Task task = new Event(description, from, to);
+            Task task = new Event(Parser.checkDescription(description), from, to);
             tasks.add(task);
             ui.showAdded(task, tasks.size());
             return false;
         }
     }
 
-    private static class MarkCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
-
-        MarkCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    private static class MarkHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
-            int index = yoyo.parser.Parser.parseIndex(args, tasks.size());
-            tasks.mark(index);
-            ui.showMark(tasks.get(index));
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            if (args.trim().equalsIgnoreCase(Constants.SELECT_DONE)) {
+                throw new YoyoException(Constants.ERR_ALREADY_DONE);
+            }
+            int[] selected = Parser.parseTaskRefs(args, tasks);
+            if (selected.length == 1) {
+                tasks.mark(selected[0]);
+                ui.showMark(tasks.get(selected[0]));
+            } else {
+                List<Task> marked = tasks.markAll(selected);
+                if (marked.isEmpty()) {
+                    throw new YoyoException(Constants.ERR_ALREADY_DONE);
+                }
+                ui.showMark(marked);
+            }
             return false;
         }
     }
 
-    private static class UnmarkCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
-
-        UnmarkCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
-        }
+    private static class UnmarkHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
-            int index = yoyo.parser.Parser.parseIndex(args, tasks.size());
-            tasks.unmark(index);
-            ui.showUnmark(tasks.get(index));
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            if (args.trim().equalsIgnoreCase(Constants.SELECT_UNDONE)) {
+                throw new YoyoException(Constants.ERR_ALREADY_NOT_DONE);
+            }
+            int[] selected = Parser.parseTaskRefs(args, tasks);
+            if (selected.length == 1) {
+                tasks.unmark(selected[0]);
+                ui.showUnmark(tasks.get(selected[0]));
+            } else {
+                List<Task> unmarked = tasks.unmarkAll(selected);
+                if (unmarked.isEmpty()) {
+                    throw new YoyoException(Constants.ERR_ALREADY_NOT_DONE);
+                }
+                ui.showUnmark(unmarked);
+            }
             return false;
         }
     }
 
-    private static class DeleteCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
+    private static class DeleteHandler implements Handler {
 
-        DeleteCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
+        @Override
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            int[] selected = Parser.parseTaskNumbers(args, tasks);
+            if (selected.length == 1) {
+                Task removed = tasks.remove(selected[0]);
+                ui.showRemoved(removed, tasks.size());
+            } else {
+                // One pass over the list, however many tasks go
+                ui.showRemoved(tasks.removeAll(selected), tasks.size());
+            }
+            return false;
         }
+    }
+
+    private static class FindHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
-            int index = yoyo.parser.Parser.parseIndex(args, tasks.size());
-            Task removed = tasks.remove(index);
-            ui.showRemoved(removed, tasks.size());
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            boolean similar = args.startsWith(Constants.FIND_SIMILAR_PREFIX);
+            String keyword = similar ? args.substring(Constants.FIND_SIMILAR_PREFIX.length()).trim() : args;
+            if (keyword.isEmpty()) {
+                throw new YoyoException(Constants.ERR_FIND_NEEDS_KEYWORD);
+            }
+            ui.showFound(similar ? tasks.findSimilar(keyword) : tasks.find(keyword));
             return false;
         }
     }
 
-    private static class FindCommand implements Command {
-
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
+    private static class OnHandler implements Handler {
 
-        FindCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
+        @Override
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            if (args.isEmpty() || args.startsWith(Constants.ARG_TO)) {
+                throw new YoyoException(Constants.ERR_ON_USAGE);
+            }
+            String[] parts = args.split(Constants.ARG_TO, 2);
+            LocalDateTime from = DateTimeUtil.parseFlexibleDateTime(parts[0]);
+            LocalDateTime to = parts.length > 1 ? DateTimeUtil.parseFlexibleDateTime(parts[1]) : from;
+            if (to.isBefore(from)) {
+                throw new YoyoException(Constants.ERR_WINDOW_ORDER);
+            }
+            ui.showFound(tasks.eventsBetween(from, to));
+            return false;
         }
+    }
+
+    private static class DueHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
             if (args.isEmpty()) {
-                throw new YoyoException(Constants.ERR_FIND_NEEDS_KEYWORD);
+                throw new YoyoException(Constants.ERR_DUE_USAGE);
             }
-            java.util.List<Task> found = tasks.find(args);
-            ui.showFound(found);
+            ui.showFound(tasks.dueBefore(DateTimeUtil.parseFlexibleDateTime(args)));
             return false;
         }
     }
 
-    private static class SortCommand implements Command {
+    private static class UpcomingHandler implements Handler {
+
+        @Override
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
+            int count = Constants.DEFAULT_UPCOMING_COUNT;
+            if (!args.isEmpty()) {
+                try {
+                    count = Integer.parseInt(args.trim());
+                } catch (NumberFormatException e) {
+                    throw new YoyoException(Constants.ERR_UPCOMING_USAGE);
+                }
+                if (count < 0) {
+                    throw new YoyoException(Constants.ERR_UPCOMING_USAGE);
+                }
+            }
+            ui.showFound(tasks.upcoming(LocalDateTime.now(), count));
+            return false;
+        }
+    }
 
-        private final String args;
-        private final TaskList tasks;
-        private final Ui ui;
+    private static class OverdueHandler implements Handler {
 
-        SortCommand(String args, TaskList tasks, Ui ui) {
-            this.args = args;
-            this.tasks = tasks;
-            this.ui = ui;
+        @Override
+        public boolean execute(String args, TaskList tasks, Ui ui) {
+            ui.showFound(tasks.dueBefore(LocalDateTime.now()));
+            return false;
         }
+    }
+
+    private static class SortHandler implements Handler {
 
         @Override
-        public boolean execute() throws YoyoException {
+        public boolean execute(String args, TaskList tasks, Ui ui) throws YoyoException {
             if (args.isEmpty()) {
-                throw new YoyoException("Usage: sort <criteria> [asc|desc]\nCriteria: date, description, status, type\nExample: sort date asc");
+                throw new YoyoException(Constants.ERR_SORT_USAGE);
             }
 
-            String[] parts = args.trim().split("\\s+", 2);
+            // "type, date desc" lists several criteria; drop the spaces around commas
+            String[] parts = args.trim().replaceAll("\\s*,\\s*", ",").split("\\s+", 2);
             String criteria = parts[0].toLowerCase();
             boolean ascending = true; // default to ascending
 
@@ -286,35 +345,27 @@ public class CommandFactory {
             }
 
             // Validate criteria
-            if (!isValidSortCriteria(criteria)) {
+            SortOrder order;
+            try {
+                order = SortOrder.parse(criteria, ascending);
+            } catch (IllegalArgumentException e) {
                 throw new YoyoException("Invalid sort criteria. Use: date, description, status, type");
             }
 
-            // Perform the sort
-            tasks.sort(criteria, ascending);
+            // Perform the sort; tasks added afterwards are inserted in order
+            tasks.sort(order);
 
             // Show the sorted list
-            ui.showList(tasks.asList());
+            ui.showList(tasks.snapshot());
 
             return false;
         }
-
-        private boolean isValidSortCriteria(String criteria) {
-            return "date".equals(criteria) || "description".equals(criteria)
-                    || "status".equals(criteria) || "type".equals(criteria);
-        }
     }
 
-    private static class ExitCommand implements Command {
-
-        private final Ui ui;
-
-        ExitCommand(Ui ui) {
-            this.ui = ui;
-        }
+    private static class ExitHandler implements Handler {
 
         @Override
-        public boolean execute() {
+        public boolean execute(String args, TaskList tasks, Ui ui) {
             ui.showLine();
             ui.showError(Constants.MSG_GOODBYE);
             return true;
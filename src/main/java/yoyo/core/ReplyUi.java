@@ -0,0 +1,56 @@
+package yoyo.core;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import yoyo.ui.Ui;
+import yoyo.util.Constants;
+
+/**
+ * Ui that collects the messages of a command as plain text, without the
+ * console's box lines, so that the GUI can show them as one reply.
+ */
+class ReplyUi extends Ui {
+
+    private final StringBuilder reply = new StringBuilder();
+
+    /**
+     * Constructs a UI with an empty reply.
+     */
+    ReplyUi() {
+        super(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Override
+    public void showLine() {
+        // Dialog boxes separate the replies already
+    }
+
+    @Override
+    public void showHelp() {
+        append(Constants.HELP_TEXT);
+    }
+
+    @Override
+    protected void boxed(String... lines) {
+        append(String.join("\n", lines));
+    }
+
+    private void append(String text) {
+        if (reply.length() > 0) {
+            reply.append('\n');
+        }
+        reply.append(text);
+    }
+
+    /**
+     * Returns the messages shown since the last call, and starts a new reply.
+     *
+     * @return the messages, one per line
+     */
+    String takeReply() {
+        String text = reply.toString();
+        reply.setLength(0);
+        return text;
+    }
+}
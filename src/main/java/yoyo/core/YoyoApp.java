@@ -1,10 +1,20 @@
 package yoyo.core;
 
-import yoyo.command.Command;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import yoyo.command.CommandFactory;
 import yoyo.exception.YoyoException;
 import yoyo.parser.Parser;
 import yoyo.storage.Storage;
+import yoyo.storage.StorageOptions;
+import yoyo.task.DescriptionPool;
 import yoyo.task.TaskList;
 import yoyo.ui.Ui;
 import yoyo.util.Constants;
@@ -26,11 +36,24 @@ public class YoyoApp {
      * @param filePath the path to the data file for storing tasks
      */
     public YoyoApp(String filePath) {
+        this(filePath, new Ui());
+    }
+
+    /**
+     * Constructs a new YoyoApp instance that shows its messages through the
+     * given UI, and loads existing tasks.
+     *
+     * @param filePath the path to the data file for storing tasks
+     * @param ui the UI to show messages and load warnings with
+     */
+    public YoyoApp(String filePath, Ui ui) {
         assert filePath != null && !filePath.trim().isEmpty() : "File path cannot be null or empty";
-        this.ui = new Ui();
-        this.storage = new Storage(filePath);
+        assert ui != null : "Ui cannot be null";
+        this.ui = ui;
+        this.storage = new Storage(filePath, StorageOptions.fromSystemProperties());
         Storage.LoadResult loaded = storage.load();
-        this.tasks = new TaskList(loaded.tasks);
+        this.tasks = TaskList.backedBy(loaded.tasks);
+        storage.attach(tasks);
         if (!loaded.warnings.isEmpty()) {
             ui.showWarnings(loaded.warnings);
         }
@@ -48,7 +71,7 @@ public class YoyoApp {
                 continue;
             }
             try {
-                exit = processCommand(input);
+                exit = processCommand(input, ui);
             } catch (YoyoException e) {
                 ui.showError(e.getMessage());
             } catch (IllegalArgumentException e) {
@@ -60,24 +83,112 @@ public class YoyoApp {
                 ui.showLine();
             }
         }
+
+        // Write-behind may still hold changes; they must reach disk before exit
+        try {
+            storage.close();
+        } catch (IOException e) {
+            ui.showError(Constants.ERR_FAILED_TO_SAVE + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the commands of a script, one per line, without showing their
+     * output. Instead of saving after every command, the tasks are saved once
+     * every {@code checkpoint} commands that modify them, if positive, and
+     * once at the end. Failed commands are reported with their line number on
+     * the error stream, and the number of commands and the throughput at the
+     * end. Blank lines are skipped, and an exit command ends the script.
+     *
+     * @param script the script to read the commands from
+     * @param checkpoint the number of modifying commands between saves, or 0
+     * to save only at the end
+     * @return the number of commands that failed
+     * @throws IOException if the script cannot be read
+     */
+    public int runBatch(BufferedReader script, int checkpoint) throws IOException {
+        assert script != null : "Script cannot be null";
+        int commands = 0;
+        int failed = 0;
+        int unsaved = 0;
+        long start = System.nanoTime();
+        // The commands still report to a Ui; nobody reads that in batch mode
+        Ui quiet = new Ui(new PrintStream(OutputStream.nullOutputStream()));
+        int lineNumber = 0;
+        boolean exit = false;
+        String line;
+        while (!exit && (line = script.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            commands++;
+            try {
+                Parser.Parsed parsed = Parser.parse(line);
+                exit = CommandFactory.execute(parsed.cmd, parsed.args, tasks, quiet);
+                if (shouldSaveAfterCommand(parsed.cmd) && ++unsaved == checkpoint) {
+                    unsaved = 0;
+                    if (persistQuietly()) {
+                        System.out.println(String.format(Constants.MSG_BATCH_CHECKPOINT, commands,
+                                commands / seconds(start)));
+                    }
+                }
+            } catch (YoyoException | IllegalArgumentException e) {
+                failed++;
+                System.err.println(String.format(Constants.ERR_BATCH_LINE, lineNumber, e.getMessage()));
+            } catch (Exception e) {
+                failed++;
+                System.err.println(String.format(Constants.ERR_BATCH_LINE, lineNumber,
+                        Constants.ERR_UNEXPECTED_ERROR + e.getMessage()));
+            }
+        }
+
+        if (unsaved > 0) {
+            persistQuietly();
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            System.err.println(Constants.ERR_FAILED_TO_SAVE + e.getMessage());
+        }
+        double elapsed = seconds(start);
+        System.out.println(String.format(Constants.MSG_BATCH_SUMMARY, commands, elapsed, commands / elapsed, failed));
+        System.out.println(String.format(Constants.MSG_BATCH_DESCRIPTIONS, DescriptionPool.shared().stats()));
+        return failed;
+    }
+
+    // Reports a failed save on the error stream, as batch output is not shown
+    private boolean persistQuietly() {
+        try {
+            storage.persist(tasks);
+            return true;
+        } catch (Exception e) {
+            System.err.println(Constants.ERR_FAILED_TO_SAVE + e.getMessage());
+            return false;
+        }
+    }
+
+    private static double seconds(long startNanos) {
+        return Math.max(System.nanoTime() - startNanos, 1) / 1e9;
     }
 
     /**
      * Processes a user command and returns true if the application should exit.
      *
      * @param input the user input command
+     * @param ui the UI to show the command's messages with
      * @return true if the application should exit, false otherwise
      * @throws YoyoException if there's an application-specific error
+     * @throws IllegalArgumentException if the command is unknown
      */
-    private boolean processCommand(String input) throws YoyoException {
+    boolean processCommand(String input, Ui ui) throws YoyoException {
         Parser.Parsed parsed = Parser.parse(input);
-        Command command = CommandFactory.createCommand(parsed.cmd, parsed.args, tasks, ui);
-        boolean shouldExit = command.execute();
+        boolean shouldExit = CommandFactory.execute(parsed.cmd, parsed.args, tasks, ui);
 
         // Save tasks after commands that modify the task list
         if (shouldSaveAfterCommand(parsed.cmd)) {
             try {
-                storage.save(tasks.asList());
+                storage.persist(tasks);
             } catch (Exception e) {
                 ui.showError(Constants.ERR_FAILED_TO_SAVE + e.getMessage());
             }
@@ -103,15 +214,40 @@ public class YoyoApp {
 
     /**
      * Main entry point for the Yoyo application. Creates a new YoyoApp instance
-     * and starts the application.
+     * and starts the application, or with {@code --batch <file>} runs the
+     * commands in the file, or on standard input for {@code -}, and exits.
      *
-     * @param args command line arguments (not used)
+     * @param args command line arguments, empty or {@code --batch <file>}
      */
     public static void main(String[] args) {
         assert args != null : "Command line arguments array cannot be null";
+        if (args.length > 0 && Constants.ARG_BATCH.equals(args[0])) {
+            System.exit(runBatch(args));
+        }
         new YoyoApp(Constants.DEFAULT_DATA_FILE).run();
     }
 
+    /**
+     * Runs a script given on the command line and returns the exit status: 0
+     * if every command succeeded, 1 if some failed or the script could not be
+     * read, and 2 for invalid arguments.
+     */
+    private static int runBatch(String[] args) {
+        if (args.length != 2) {
+            System.err.println(Constants.ERR_BATCH_USAGE);
+            return 2;
+        }
+        int checkpoint = Integer.getInteger(Constants.PROP_BATCH_CHECKPOINT, Constants.DEFAULT_BATCH_CHECKPOINT);
+        try (BufferedReader script = Constants.BATCH_STDIN.equals(args[1])
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            return new YoyoApp(Constants.DEFAULT_DATA_FILE).runBatch(script, checkpoint) == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println(Constants.ERR_FAILED_TO_READ_FILE + e.getMessage());
+            return 1;
+        }
+    }
+
     // Getter methods for adapter access
     public TaskList getTasks() {
         return tasks;
@@ -0,0 +1,83 @@
+package yoyo.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import yoyo.util.Constants;
+
+/**
+ * Trie of the command names, built once, that recognizes a command word in
+ * place in the input line. Letters are matched case-insensitively, so the
+ * word needs neither to be cut out of the line nor lowercased.
+ */
+final class CommandTrie {
+
+    private static final String[] NAMES = {
+        Constants.CMD_LIST, Constants.CMD_HELP, Constants.CMD_TODO, Constants.CMD_DEADLINE,
+        Constants.CMD_EVENT, Constants.CMD_MARK, Constants.CMD_UNMARK, Constants.CMD_DELETE,
+        Constants.CMD_FIND, Constants.CMD_SORT, Constants.CMD_ON, Constants.CMD_DUE,
+        Constants.CMD_UPCOMING, Constants.CMD_OVERDUE, Constants.CMD_BYE, Constants.CMD_EXIT,
+        Constants.CMD_QUIT
+    };
+    private static final int LETTERS = 26;
+
+    // next[state * LETTERS + letter] is the state after the letter, 0 if none
+    private static final int[] NEXT;
+    // The command name spelled out by the letters leading to each state
+    private static final String[] ACCEPT;
+
+    static {
+        List<int[]> rows = new ArrayList<>();
+        List<String> accept = new ArrayList<>();
+        rows.add(new int[LETTERS]);
+        accept.add(null);
+        for (String name : NAMES) {
+            int state = 0;
+            for (int i = 0; i < name.length(); i++) {
+                int letter = name.charAt(i) - 'a';
+                assert letter >= 0 && letter < LETTERS : "Command names must be lowercase letters: " + name;
+                if (rows.get(state)[letter] == 0) {
+                    rows.get(state)[letter] = rows.size();
+                    rows.add(new int[LETTERS]);
+                    accept.add(null);
+                }
+                state = rows.get(state)[letter];
+            }
+            accept.set(state, name);
+        }
+        NEXT = new int[rows.size() * LETTERS];
+        for (int state = 0; state < rows.size(); state++) {
+            System.arraycopy(rows.get(state), 0, NEXT, state * LETTERS, LETTERS);
+        }
+        ACCEPT = accept.toArray(new String[0]);
+    }
+
+    private CommandTrie() {
+    }
+
+    /**
+     * Returns the command name spelled, in any case, by the characters of
+     * the input between the given indexes.
+     *
+     * @param input the input line
+     * @param start the index of the first character of the word
+     * @param end the index after the last character of the word
+     * @return the {@link Constants} command name, or null if the word is not
+     * one
+     */
+    static String lookup(String input, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            // Folds ASCII upper case onto lower case; anything else is no letter
+            int letter = (input.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= LETTERS) {
+                return null;
+            }
+            state = NEXT[state * LETTERS + letter];
+            if (state == 0) {
+                return null;
+            }
+        }
+        return ACCEPT[state];
+    }
+}
@@ -1,6 +1,13 @@
 package yoyo.parser;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
 import yoyo.exception.YoyoException;
+import yoyo.task.Task;
+import yoyo.task.TaskList;
 import yoyo.util.Constants;
 
 /**
@@ -35,19 +42,63 @@ public class Parser {
     }
 
     /**
-     * Parses the input string into a command and arguments.
+     * Parses the input string into a command and arguments. The line is
+     * scanned once: the command word is recognized in place, so a known
+     * command is returned as its {@link Constants} name without copying, and
+     * only the arguments are cut out of the line.
      *
      * @param input the user input string
      * @return the parsed command
      */
     public static Parsed parse(String input) {
         assert input != null : "Input string cannot be null";
-        String[] parts = input.trim().split("\\s+", 2);
-        String cmd = parts[0].toLowerCase();
-        String args = parts.length > 1 ? parts[1] : "";
+        // Same bounds as trim()
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int cmdEnd = start;
+        while (cmdEnd < end && !isSeparator(input.charAt(cmdEnd))) {
+            cmdEnd++;
+        }
+        String cmd = CommandTrie.lookup(input, start, cmdEnd);
+        if (cmd == null) {
+            cmd = input.substring(start, cmdEnd).toLowerCase();
+        }
+
+        int argsStart = cmdEnd;
+        while (argsStart < end && isSeparator(input.charAt(argsStart))) {
+            argsStart++;
+        }
+        String args = argsStart < end ? input.substring(argsStart, end) : "";
         return new Parsed(cmd, args);
     }
 
+    // The characters of the regex \s, which used to split the command from its arguments
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Checks that a description is short enough to become a task.
+     *
+     * @param description the description of the task to create
+     * @return the description
+     * @throws YoyoException if the description is longer than
+     * {@link Constants#MAX_DESCRIPTION_BYTES}
+     */
+    public static String checkDescription(String description) throws YoyoException {
+        if (Task.isTooLong(description)) {
+            throw new YoyoException(String.format(Constants.ERR_DESCRIPTION_TOO_LONG, Constants.MAX_DESCRIPTION_BYTES));
+        }
+        return description;
+    }
+
     /**
      * Parses a task index from a string, validating it against the list size.
      *
@@ -73,4 +124,127 @@ public class Parser {
         assert idx >= 1 && idx <= size : "Parsed index should be within valid range";
         return idx;
     }
+
+    /**
+     * Parses a reference to a task, which is either its 1-based index or its
+     * stable id prefixed with '#', and returns the task's current index.
+     *
+     * @param arg the index or id string
+     * @param tasks the task list the reference points into
+     * @return the 1-based index of the referenced task
+     * @throws YoyoException if the reference is invalid
+     */
+    public static int parseTaskRef(String arg, TaskList tasks) throws YoyoException {
+        assert tasks != null : "Task list cannot be null";
+        if (arg == null || !arg.trim().startsWith(Constants.TASK_ID_PREFIX)) {
+            return parseIndex(arg, tasks.size());
+        }
+        int id;
+        try {
+            id = Integer.parseInt(arg.trim().substring(Constants.TASK_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new YoyoException(Constants.ERR_TASK_ID_MUST_BE_INT);
+        }
+        int idx = tasks.positionOf(id);
+        if (idx < 0) {
+            throw new YoyoException(Constants.ERR_UNKNOWN_TASK_ID + id);
+        }
+        return idx;
+    }
+
+    /**
+     * Parses a selection of tasks: task references as for
+     * {@link #parseTaskRef} and ranges of indexes such as {@code 9-20}, separated
+     * by commas, or one of the predicates {@code done}, {@code undone} and
+     * {@code find:<keyword>}.
+     *
+     * @param arg the selection string
+     * @param tasks the task list the selection points into
+     * @return the distinct 1-based indexes of the selected tasks, in ascending
+     * order; never empty
+     * @throws YoyoException if a reference or range is invalid, or a predicate
+     * matches no task
+     */
+    public static int[] parseTaskRefs(String arg, TaskList tasks) throws YoyoException {
+        return parseSelection(arg, tasks, true);
+    }
+
+    /**
+     * Parses a selection of tasks as for {@link #parseTaskRefs}, but without
+     * ids. Ids last only until Yoyo exits, so an id remembered from an
+     * earlier run could point to another task; commands that cannot be
+     * undone take task numbers instead.
+     *
+     * @param arg the selection string
+     * @param tasks the task list the selection points into
+     * @return the distinct 1-based indexes of the selected tasks, in ascending
+     * order; never empty
+     * @throws YoyoException if the selection holds an id, a reference or range
+     * is invalid, or a predicate matches no task
+     */
+    public static int[] parseTaskNumbers(String arg, TaskList tasks) throws YoyoException {
+        return parseSelection(arg, tasks, false);
+    }
+
+    private static int[] parseSelection(String arg, TaskList tasks, boolean idsAllowed) throws YoyoException {
+        assert tasks != null : "Task list cannot be null";
+        String selection = arg == null ? "" : arg.trim();
+        if (selection.equalsIgnoreCase(Constants.SELECT_DONE)) {
+            return select(tasks, Task::isDone, selection);
+        }
+        if (selection.equalsIgnoreCase(Constants.SELECT_UNDONE)) {
+            return select(tasks, task -> !task.isDone(), selection);
+        }
+        if (selection.regionMatches(true, 0, Constants.SELECT_FIND_PREFIX, 0, Constants.SELECT_FIND_PREFIX.length())) {
+            String keyword = selection.substring(Constants.SELECT_FIND_PREFIX.length()).trim();
+            if (keyword.isEmpty()) {
+                throw new YoyoException(Constants.ERR_FIND_NEEDS_KEYWORD);
+            }
+            int[] found = tasks.find(keyword).stream().mapToInt(TaskList.Match::position).toArray();
+            if (found.length == 0) {
+                throw new YoyoException(Constants.ERR_NO_TASKS_SELECTED + selection);
+            }
+            return found;
+        }
+
+        BitSet selected = new BitSet();
+        int start = 0;
+        do {
+            int end = selection.indexOf(Constants.SELECT_SEPARATOR, start);
+            String part = selection.substring(start, end < 0 ? selection.length() : end).trim();
+            // A leading '-' is a sign rather than a range, left for parseIndex to reject
+            int dash = part.indexOf(Constants.SELECT_RANGE, 1);
+            if (!idsAllowed && part.startsWith(Constants.TASK_ID_PREFIX)) {
+                throw new YoyoException(Constants.ERR_TASK_ID_NOT_ALLOWED);
+            }
+            if (dash < 0 || part.startsWith(Constants.TASK_ID_PREFIX)) {
+                selected.set(parseTaskRef(part, tasks));
+            } else {
+                int from = parseIndex(part.substring(0, dash), tasks.size());
+                int to = parseIndex(part.substring(dash + 1), tasks.size());
+                if (to < from) {
+                    throw new YoyoException(Constants.ERR_INVALID_TASK_RANGE + part);
+                }
+                selected.set(from, to + 1);
+            }
+            start = end + 1;
+        } while (start > 0);
+        return selected.stream().toArray();
+    }
+
+    // Selects the tasks the predicate holds for, at least one of them
+    private static int[] select(TaskList tasks, Predicate<Task> predicate, String selection) throws YoyoException {
+        List<Task> snapshot = tasks.snapshot();
+        int[] selected = new int[snapshot.size()];
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (predicate.test(snapshot.get(i))) {
+                selected[count++] = i + 1;
+            }
+        }
+        if (count == 0) {
+            throw new YoyoException(Constants.ERR_NO_TASKS_SELECTED + selection);
+        }
+        return Arrays.copyOf(selected, count);
+    }
 }
@@ -0,0 +1,375 @@
+package yoyo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import yoyo.task.Task;
+import yoyo.util.Constants;
+
+/**
+ * Binary snapshot format: a header of magic, version and task count followed
+ * by {@link TaskCodec} records, one per task. Loading it needs neither regexes
+ * nor date parsing.
+ *
+ * <p>Since version 2 the records are grouped into blocks of about 64 KiB, each
+ * framed by its record count and byte length and followed by a CRC32C of
+ * both and the records. A damaged file is recovered without decoding
+ * anything twice:
+ * <ul>
+ * <li>a block that fails its checksum, but whose header is still valid, is
+ * dropped with a warning, and the blocks after it are kept;</li>
+ * <li>a block with an invalid header, or one cut short by the end of the
+ * file, ends the snapshot, since the blocks after it cannot be found.</li>
+ * </ul>
+ * So the tasks kept are every intact block up to the first unframeable one,
+ * not just the longest valid prefix. Version 1 files, whose records are not
+ * grouped, are still read up to their first truncated or corrupted record.
+ */
+final class BinarySnapshot {
+
+    static final int MAGIC = 0x594F5942; // "YOYB"
+    static final byte VERSION = 2;
+    static final byte VERSION_UNCHECKED = 1;
+    static final int HEADER_BYTES = Integer.BYTES + 1 + Integer.BYTES;
+    static final int BLOCK_HEADER_BYTES = 2 * Integer.BYTES;
+    static final int COUNT_OFFSET = Integer.BYTES + 1;
+
+    // Records per block are added until the block reaches this size
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final int MAX_BLOCK_BYTES = BLOCK_BYTES + TaskCodec.MAX_RECORD_BYTES;
+
+    // Initial read window; grows only for blocks larger than this
+    private static final int WINDOW_BYTES = 4 * BLOCK_BYTES;
+
+    private BinarySnapshot() {
+        // Utility class
+    }
+
+    /**
+     * Checks whether raw file contents start with the binary snapshot magic.
+     *
+     * @param raw the raw file contents
+     * @return true if the contents are a binary snapshot
+     */
+    static boolean hasMagic(byte[] raw) {
+        return raw.length >= Integer.BYTES && ByteBuffer.wrap(raw).getInt() == MAGIC;
+    }
+
+    /**
+     * Encodes the tasks as a binary snapshot.
+     *
+     * @param tasks the tasks to encode
+     * @param layout receives the positions of blocks and records, or null
+     * @return the snapshot bytes
+     */
+    static byte[] encode(List<Task> tasks, SnapshotLayout layout) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + tasks.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(tasks.size());
+            writeBlocks(out, tasks, 0, 0, layout);
+        } catch (IOException e) {
+            throw new AssertionError("In-memory write cannot fail", e);
+        }
+        if (layout != null) {
+            layout.setLength(bytes.size());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the tasks from {@code from} onwards as blocks, e.g. to append
+     * them to an existing snapshot whose task count is then updated at
+     * {@link #COUNT_OFFSET}.
+     *
+     * @param out the output to write the blocks to
+     * @param tasks the tasks
+     * @param from the index of the first task to encode
+     * @param base the file position that the start of {@code out} will have
+     * @param layout receives the positions of blocks and records, or null
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeBlocks(DataOutputStream out, List<Task> tasks, int from, int base, SnapshotLayout layout)
+            throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream(2 * BLOCK_BYTES);
+        DataOutputStream blockOut = new DataOutputStream(block);
+        int records = 0;
+        for (int i = from; i < tasks.size(); i++) {
+            if (layout != null) {
+                if (records == 0) {
+                    layout.addBlock(base + out.size());
+                }
+                layout.addRecord(base + out.size() + BLOCK_HEADER_BYTES + block.size());
+            }
+            TaskCodec.write(blockOut, tasks.get(i));
+            records++;
+            if (block.size() >= BLOCK_BYTES) {
+                writeBlock(out, records, block);
+                records = 0;
+            }
+        }
+        if (records > 0) {
+            writeBlock(out, records, block);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, int records, ByteArrayOutputStream encoded)
+            throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + encoded.size() + Integer.BYTES);
+        block.putInt(records).putInt(encoded.size()).put(encoded.toByteArray());
+        block.putInt(blockChecksum(block.array(), block.position()));
+        out.write(block.array());
+        encoded.reset();
+    }
+
+    /**
+     * Computes the checksum stored at the end of a block.
+     *
+     * @param block the block bytes, starting with its header
+     * @param length the length of the block without its checksum
+     * @return the CRC32C of the block
+     */
+    static int blockChecksum(byte[] block, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(block, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Decodes a binary snapshot from a stream, handing each task to
+     * {@code sink} as soon as it is decoded. Only a window of the stream is
+     * held in memory at a time. Damaged blocks are dropped or end decoding
+     * as described for the class.
+     *
+     * <p>With a layout, the positions of the blocks and records that were
+     * decoded are recorded in it, as {@link #encode} does, together with the
+     * length of the snapshot.
+     *
+     * @param in the stream positioned at the start of the snapshot
+     * @param sink receives the decoded tasks in file order
+     * @param warnings receives messages about records that were dropped
+     * @param layout receives the positions of blocks and records, or null
+     * @throws IOException if the stream cannot be read
+     */
+    static void decode(InputStream in, Consumer<Task> sink, Consumer<String> warnings, SnapshotLayout layout)
+            throws IOException {
+        ReadWindow window = new ReadWindow(in, WINDOW_BYTES);
+        byte version;
+        int count;
+        try {
+            while (window.buffer().remaining() < HEADER_BYTES && window.fill()) {
+                // Keep reading until the header is complete
+            }
+            ByteBuffer header = window.buffer();
+            version = checkHeader(header);
+            count = header.getInt();
+        } catch (BufferUnderflowException | StreamCorruptedException e) {
+            warnings.accept(Constants.ERR_FAILED_TO_READ_FILE + "invalid binary header");
+            return;
+        }
+
+        if (version == VERSION_UNCHECKED) {
+            decodeRecords(window, count, sink, warnings);
+            return;
+        }
+
+        int n = 0;
+        while (n < count) {
+            int length;
+            try {
+                length = nextBlock(window);
+            } catch (BufferUnderflowException e) {
+                warnings.accept(String.format(Constants.ERR_RECORDS_DROPPED, n + 1, count, "truncated block"));
+                return;
+            } catch (StreamCorruptedException e) {
+                ByteBuffer buf = window.buffer();
+                try {
+                    length = blockLength(buf, buf.position());
+                } catch (BufferUnderflowException | StreamCorruptedException unframed) {
+                    warnings.accept(String.format(Constants.ERR_RECORDS_DROPPED, n + 1, count, e.getMessage()));
+                    return;
+                }
+                // The header still frames the block, so the blocks after it can be read
+                int records = Math.min(buf.getInt(buf.position()), count - n);
+                warnings.accept(String.format(Constants.ERR_RECORDS_DROPPED, n + 1, n + records, e.getMessage()));
+                n += records;
+                buf.position(buf.position() + length);
+                continue;
+            }
+
+            ByteBuffer buf = window.buffer();
+            int blockEnd = buf.position() + length;
+            int records = buf.getInt(buf.position());
+            ByteBuffer block = buf.duplicate()
+                    .limit(blockEnd - Integer.BYTES)
+                    .position(buf.position() + BLOCK_HEADER_BYTES);
+            if (layout != null) {
+                layout.addBlock((int) window.streamPosition(buf.position()));
+            }
+            for (int i = 0; i < records; i++) {
+                n++;
+                if (layout != null) {
+                    layout.addRecord((int) window.streamPosition(block.position()));
+                }
+                try {
+                    sink.accept(TaskCodec.read(block));
+                } catch (StreamCorruptedException e) {
+                    throw new IllegalStateException("Record was validated with its block", e);
+                } catch (IllegalArgumentException e) {
+                    warnings.accept(String.format(Constants.ERR_RECORD_SKIPPED, n, e.getMessage()));
+                }
+            }
+            buf.position(blockEnd);
+        }
+        if (layout != null) {
+            layout.setLength((int) window.streamPosition(window.buffer().position()));
+        }
+    }
+
+    private static void decodeRecords(ReadWindow window, int count, Consumer<Task> sink,
+            Consumer<String> warnings) throws IOException {
+        for (int i = 0; i < count; i++) {
+            try {
+                sink.accept(readRecord(window));
+            } catch (BufferUnderflowException e) {
+                warnings.accept(String.format(Constants.ERR_RECORD_SKIPPED, i + 1, "truncated record"));
+                break;
+            } catch (StreamCorruptedException e) {
+                warnings.accept(String.format(Constants.ERR_RECORD_SKIPPED, i + 1, e.getMessage()));
+                break;
+            } catch (IllegalArgumentException e) {
+                warnings.accept(String.format(Constants.ERR_RECORD_SKIPPED, i + 1, e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Reads the next record, refilling the window until it holds the whole
+     * record.
+     *
+     * @throws BufferUnderflowException if the stream ends inside the record
+     */
+    private static Task readRecord(ReadWindow window) throws IOException {
+        while (true) {
+            ByteBuffer buf = window.buffer();
+            try {
+                TaskCodec.recordLength(buf, buf.position());
+                return TaskCodec.read(buf);
+            } catch (BufferUnderflowException e) {
+                if (!window.fill()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Refills the window until it holds the whole next block, and checks it.
+     *
+     * @return the length of the block at the window's position
+     * @throws BufferUnderflowException if the stream ends inside the block
+     */
+    private static int nextBlock(ReadWindow window) throws IOException {
+        while (true) {
+            ByteBuffer buf = window.buffer();
+            try {
+                return checkBlock(buf, buf.position());
+            } catch (BufferUnderflowException e) {
+                if (!window.fill()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates the block starting at the given absolute position: its
+     * checksum, and that its records exactly fill it. The block's record
+     * count is the int at {@code pos}, and its first record starts at
+     * {@code pos + BLOCK_HEADER_BYTES}.
+     *
+     * @param in the buffer holding the block
+     * @param pos the absolute position of the block
+     * @return the block length in bytes, including its framing and checksum
+     * @throws BufferUnderflowException if the block is truncated
+     * @throws StreamCorruptedException if the block is corrupted
+     */
+    static int checkBlock(ByteBuffer in, int pos) throws StreamCorruptedException {
+        int end = pos + blockLength(in, pos) - Integer.BYTES;
+        int records = in.getInt(pos);
+
+        CRC32C crc = new CRC32C();
+        crc.update(in.duplicate().limit(end).position(pos));
+        if ((int) crc.getValue() != in.getInt(end)) {
+            throw new StreamCorruptedException("Block checksum mismatch");
+        }
+
+        ByteBuffer block = in.duplicate().limit(end);
+        int recordPos = pos + BLOCK_HEADER_BYTES;
+        try {
+            for (int i = 0; i < records; i++) {
+                recordPos += TaskCodec.recordLength(block, recordPos);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new StreamCorruptedException("Block records overrun the block");
+        }
+        if (recordPos != end) {
+            throw new StreamCorruptedException("Block records do not fill the block");
+        }
+        return end + Integer.BYTES - pos;
+    }
+
+    /**
+     * Returns the length of the block starting at the given absolute position
+     * as its header states it, without checking the block's contents. A block
+     * that fails {@link #checkBlock} can be stepped over with it.
+     *
+     * @param in the buffer holding the block
+     * @param pos the absolute position of the block
+     * @return the block length in bytes, including its framing and checksum
+     * @throws BufferUnderflowException if the block is truncated
+     * @throws StreamCorruptedException if the block header is invalid
+     */
+    static int blockLength(ByteBuffer in, int pos) throws StreamCorruptedException {
+        if (in.limit() - pos < BLOCK_HEADER_BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int records = in.getInt(pos);
+        int length = in.getInt(pos + Integer.BYTES);
+        if (records <= 0 || length < records || length > MAX_BLOCK_BYTES) {
+            throw new StreamCorruptedException("Invalid block header");
+        }
+        int total = BLOCK_HEADER_BYTES + length + Integer.BYTES;
+        if (total > in.limit() - pos) {
+            throw new BufferUnderflowException();
+        }
+        return total;
+    }
+
+    /**
+     * Reads and validates the magic and version at the buffer's position.
+     *
+     * @param in the buffer positioned at the start of the snapshot
+     * @return the snapshot version
+     * @throws StreamCorruptedException if the magic or version do not match
+     */
+    static byte checkHeader(ByteBuffer in) throws StreamCorruptedException {
+        if (in.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a binary snapshot");
+        }
+        byte version = in.get();
+        if (version != VERSION && version != VERSION_UNCHECKED) {
+            throw new StreamCorruptedException("Unsupported snapshot version: " + version);
+        }
+        return version;
+    }
+}
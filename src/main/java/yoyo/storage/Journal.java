@@ -0,0 +1,299 @@
+package yoyo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import yoyo.task.Task;
+import yoyo.task.TaskList;
+import yoyo.util.Constants;
+
+/**
+ * Append-only log of task list mutations kept next to the snapshot file. Each
+ * add, remove, mark and unmark costs one small record instead of a rewrite of
+ * the whole snapshot.
+ *
+ * <p>Logging records (the listener methods, {@link #drainPending()} and
+ * {@link #compacted()}) and writing the file ({@link #append} and
+ * {@link #reset}) are separate steps, so the file may be written by a
+ * background thread while commands keep logging.
+ *
+ * <p>The journal header stores the length and CRC32 of the snapshot it was
+ * started against. On load the journal is only replayed if the snapshot still
+ * matches, so a crash between writing a new snapshot and resetting the journal
+ * never applies the same records twice.
+ */
+final class Journal implements TaskList.Listener {
+
+    private static final int MAGIC = 0x594A4E4C; // "YJNL"
+    private static final byte VERSION = 1;
+
+    private static final byte OP_ADD = 'A'; // only read, from journals written before OP_INSERT
+    private static final byte OP_INSERT = 'I';
+    private static final byte OP_REMOVE = 'R';
+    private static final byte OP_MARK = 'M';
+    private static final byte OP_UNMARK = 'U';
+
+    private final Path file;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+
+    private long baseLength;
+    private int baseCrc;
+    private boolean headerWritten;
+    private boolean needsSnapshot;
+    private int recordCount;
+
+    /**
+     * Constructs a journal stored at the given path.
+     *
+     * @param file the journal file
+     */
+    Journal(Path file) {
+        assert file != null : "Journal file cannot be null";
+        this.file = file;
+    }
+
+    /**
+     * Computes the CRC32 of snapshot bytes, used to tie a journal to the
+     * snapshot it extends.
+     *
+     * @param snapshot the raw snapshot bytes
+     * @return the checksum
+     */
+    static int checksum(ByteBuffer snapshot) {
+        CRC32 crc = new CRC32();
+        crc.update(snapshot.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the number of records logged since the last snapshot.
+     *
+     * @return the record count
+     */
+    int recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns whether a change happened that cannot be expressed as a journal
+     * record (e.g. a sort), so a full snapshot must be written.
+     *
+     * @return true if a snapshot is required
+     */
+    boolean needsSnapshot() {
+        return needsSnapshot;
+    }
+
+    /**
+     * Replays the journal on top of freshly loaded snapshot tasks. A journal
+     * that belongs to a different snapshot is ignored. The replay ends at a
+     * torn trailing record, or with a warning at the first record that cannot
+     * be applied; the journal is truncated before that record.
+     *
+     * @param snapshotLength the length of the snapshot the tasks were loaded from
+     * @param snapshotCrc the {@link #checksum} of that snapshot
+     * @param tasks the snapshot tasks, updated in place
+     * @param warnings receives messages about records that could not be applied
+     * @throws IOException if the journal cannot be read
+     */
+    void replay(long snapshotLength, int snapshotCrc, List<Task> tasks, Consumer<String> warnings)
+            throws IOException {
+        baseLength = snapshotLength;
+        baseCrc = snapshotCrc;
+        headerWritten = false;
+        recordCount = 0;
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (in.getInt() != MAGIC || in.get() != VERSION
+                    || in.getLong() != baseLength || in.getInt() != baseCrc) {
+                return; // stale or foreign journal; the snapshot already covers it
+            }
+        } catch (BufferUnderflowException e) {
+            return;
+        }
+        headerWritten = true;
+
+        int validLength = in.position();
+        while (in.hasRemaining()) {
+            int recordNo = recordCount + 1;
+            try {
+                apply(in, tasks);
+            } catch (BufferUnderflowException e) {
+                break; // a record torn by a crash
+            } catch (StreamCorruptedException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                // Later records refer to positions this one would have changed
+                warnings.accept(String.format(Constants.ERR_JOURNAL_REPLAY_STOPPED, recordNo, e.getMessage()));
+                break;
+            }
+            recordCount++;
+            validLength = in.position();
+        }
+
+        if (validLength < in.limit()) {
+            // Drop the torn tail so that later appends stay readable
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(validLength);
+            }
+        }
+    }
+
+    private static void apply(ByteBuffer in, List<Task> tasks) throws StreamCorruptedException {
+        byte op = in.get();
+        switch (op) {
+            case OP_ADD ->
+                tasks.add(TaskCodec.read(in));
+            case OP_INSERT ->
+                tasks.add(in.getInt() - 1, TaskCodec.read(in));
+            case OP_REMOVE ->
+                tasks.remove(in.getInt() - 1);
+            case OP_MARK ->
+                setDone(tasks, in.getInt() - 1, true);
+            case OP_UNMARK ->
+                setDone(tasks, in.getInt() - 1, false);
+            default ->
+                throw new StreamCorruptedException("Unknown journal operation: " + op);
+        }
+    }
+
+    private static void setDone(List<Task> tasks, int index, boolean done) {
+        tasks.set(index, tasks.get(index).withDone(done));
+    }
+
+    @Override
+    public void onAdded(int idx1Based, Task task) {
+        try {
+            // The position matters once a sorted list inserts tasks at their place
+            pendingOut.writeByte(OP_INSERT);
+            pendingOut.writeInt(idx1Based);
+            TaskCodec.write(pendingOut, task);
+        } catch (IOException e) {
+            throw new AssertionError("In-memory write cannot fail", e);
+        }
+        recordCount++;
+    }
+
+    @Override
+    public void onRemoved(int idx1Based, Task task) {
+        logIndex(OP_REMOVE, idx1Based);
+    }
+
+    @Override
+    public void onStatusChanged(int idx1Based, Task task) {
+        logIndex(task.isDone() ? OP_MARK : OP_UNMARK, idx1Based);
+    }
+
+    @Override
+    public void onReordered() {
+        requireSnapshot();
+    }
+
+    /**
+     * Demands a full snapshot on the next persist, e.g. because logged records
+     * could not be written.
+     */
+    void requireSnapshot() {
+        needsSnapshot = true;
+    }
+
+    private void logIndex(byte op, int idx1Based) {
+        try {
+            pendingOut.writeByte(op);
+            pendingOut.writeInt(idx1Based);
+        } catch (IOException e) {
+            throw new AssertionError("In-memory write cannot fail", e);
+        }
+        recordCount++;
+    }
+
+    /**
+     * Takes the records logged since the last call, leaving the pending buffer
+     * empty.
+     *
+     * @return the encoded records, possibly empty
+     */
+    byte[] drainPending() {
+        byte[] records = pending.toByteArray();
+        pending.reset();
+        return records;
+    }
+
+    /**
+     * Forgets all logged records after the caller has decided to write a new
+     * snapshot that includes them.
+     */
+    void compacted() {
+        needsSnapshot = false;
+        recordCount = 0;
+        pending.reset();
+    }
+
+    /**
+     * Appends encoded records to the journal file, writing the header first if
+     * the file was not started yet.
+     *
+     * @param records the records from {@link #drainPending()}
+     * @param sync true to force the records to the device before returning
+     * @throws IOException if an I/O error occurs
+     */
+    void append(byte[] records, boolean sync) throws IOException {
+        if (records.length == 0 && headerWritten) {
+            return;
+        }
+        try (FileChannel ch = headerWritten
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (!headerWritten) {
+                writeFully(ch, header());
+            }
+            writeFully(ch, ByteBuffer.wrap(records));
+            if (sync) {
+                ch.force(false);
+            }
+        }
+        headerWritten = true;
+    }
+
+    /**
+     * Starts a fresh, empty journal file on top of a newly written snapshot.
+     *
+     * @param snapshot the raw bytes of the snapshot just written
+     * @param sync true to force the header to the device before returning
+     * @throws IOException if an I/O error occurs
+     */
+    void reset(ByteBuffer snapshot, boolean sync) throws IOException {
+        baseLength = snapshot.remaining();
+        baseCrc = checksum(snapshot);
+        headerWritten = false;
+        append(new byte[0], sync);
+    }
+
+    // A channel may write fewer bytes than asked for
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1 + Long.BYTES + Integer.BYTES);
+        header.putInt(MAGIC).put(VERSION).putLong(baseLength).putInt(baseCrc);
+        return header.flip();
+    }
+}
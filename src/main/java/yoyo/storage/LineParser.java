@@ -0,0 +1,196 @@
+package yoyo.storage;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+import yoyo.task.Deadline;
+import yoyo.task.Event;
+import yoyo.task.Task;
+import yoyo.task.Todo;
+import yoyo.util.Constants;
+import yoyo.util.DateTimeUtil;
+
+/**
+ * Single-pass parser for the lines of a text snapshot, as written by
+ * {@code Task.toString()}:
+ *
+ * <pre>
+ * [T][X] read book
+ * [D][ ] return book (by: Dec 2 2019, 18:00)
+ * [E][ ] meeting (from: Dec 2 2019, 14:00 to: Dec 2 2019, 16:00)
+ * </pre>
+ *
+ * The line is scanned in place without regexes or intermediate strings other
+ * than the description itself. The date suffix is located from the end of the
+ * line, so descriptions may themselves contain "(by:" or "(from:".
+ */
+public final class LineParser {
+
+    private static final String BY = " (by: ";
+    private static final String FROM = " (from: ";
+    private static final String TO = " to: ";
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+
+    // "[T][X] " before the description
+    private static final int PREFIX_LENGTH = 7;
+
+    private LineParser() {
+        // Utility class
+    }
+
+    /**
+     * Parses a whole line into a task.
+     *
+     * @param line the line, without line terminator
+     * @return the parsed task
+     * @throws IllegalArgumentException if the line format is unrecognized
+     */
+    public static Task parse(CharSequence line) {
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses the line between {@code start} (inclusive) and {@code end}
+     * (exclusive) of a larger text into a task.
+     *
+     * @param text the text holding the line
+     * @param start the index of the first character of the line
+     * @param end the index after the last character of the line
+     * @return the parsed task
+     * @throws IllegalArgumentException if the line format is unrecognized
+     */
+    public static Task parse(CharSequence text, int start, int end) {
+        assert start >= 0 && start <= end && end <= text.length() : "Invalid line bounds";
+        if (end - start <= PREFIX_LENGTH
+                || text.charAt(start) != '[' || text.charAt(start + 2) != ']'
+                || text.charAt(start + 3) != '[' || text.charAt(start + 5) != ']'
+                || text.charAt(start + 6) != ' ') {
+            throw unrecognized(text, start, end);
+        }
+        char status = text.charAt(start + 4);
+        if (status != Constants.STATUS_DONE && status != Constants.STATUS_NOT_DONE) {
+            throw unrecognized(text, start, end);
+        }
+
+        boolean done = status == Constants.STATUS_DONE;
+        int body = start + PREFIX_LENGTH;
+        return switch (text.charAt(start + 1)) {
+            case 'T' ->
+                new Todo(description(text, body, end, start, end), done);
+            case 'D' ->
+                parseDeadline(text, body, start, end, done);
+            case 'E' ->
+                parseEvent(text, body, start, end, done);
+            default ->
+                throw unrecognized(text, start, end);
+        };
+    }
+
+    private static Task parseDeadline(CharSequence text, int body, int start, int end, boolean done) {
+        int close = end - 1;
+        int by = text.charAt(close) == ')' ? lastIndexOf(text, BY, body, close) : -1;
+        if (by < 0) {
+            throw unrecognized(text, start, end);
+        }
+        String description = description(text, body, by, start, end);
+        return new Deadline(description,
+                DateTimeUtil.toEpochMinutes(parseDateTime(text, by + BY.length(), close)), done);
+    }
+
+    private static Task parseEvent(CharSequence text, int body, int start, int end, boolean done) {
+        int close = end - 1;
+        int from = text.charAt(close) == ')' ? lastIndexOf(text, FROM, body, close) : -1;
+        int to = from < 0 ? -1 : lastIndexOf(text, TO, from + FROM.length(), close);
+        if (to < 0) {
+            throw unrecognized(text, start, end);
+        }
+        String description = description(text, body, from, start, end);
+        return new Event(description,
+                DateTimeUtil.toEpochMinutes(parseDateTime(text, from + FROM.length(), to)),
+                DateTimeUtil.toEpochMinutes(parseDateTime(text, to + TO.length(), close)),
+                done);
+    }
+
+    private static String description(CharSequence text, int from, int to, int start, int end) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return text.subSequence(from, to).toString();
+            }
+        }
+        throw unrecognized(text, start, end);
+    }
+
+    /**
+     * Parses a date/time in the display format "MMM d yyyy, HH:mm" by scanning
+     * digits directly, falling back to the flexible parser for anything else
+     * (e.g. month names of another locale).
+     */
+    private static LocalDateTime parseDateTime(CharSequence text, int start, int end) {
+        int i = start;
+        int month = end - i >= 4 && text.charAt(i + 3) == ' ' ? monthOf(text, i) : 0;
+        i += 4;
+        int day = 0;
+        while (month > 0 && i < end && isDigit(text.charAt(i)) && day < 100) {
+            day = day * 10 + text.charAt(i++) - '0';
+        }
+        int yearStart = i + 1;
+        int year = 0;
+        if (month > 0 && i < end && text.charAt(i) == ' ') {
+            for (i = yearStart; i < end && isDigit(text.charAt(i)) && i - yearStart < 9; i++) {
+                year = year * 10 + text.charAt(i) - '0';
+            }
+        }
+        boolean matched = month > 0 && day > 0 && i > yearStart
+                && end - i == 7 && text.charAt(i) == ',' && text.charAt(i + 1) == ' '
+                && isDigit(text.charAt(i + 2)) && isDigit(text.charAt(i + 3)) && text.charAt(i + 4) == ':'
+                && isDigit(text.charAt(i + 5)) && isDigit(text.charAt(i + 6));
+        if (matched) {
+            int hour = (text.charAt(i + 2) - '0') * 10 + text.charAt(i + 3) - '0';
+            int minute = (text.charAt(i + 5) - '0') * 10 + text.charAt(i + 6) - '0';
+            try {
+                return LocalDateTime.of(year, month, day, hour, minute);
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException(
+                        String.format(Constants.ERR_UNRECOGNIZED_DATE, text.subSequence(start, end)));
+            }
+        }
+        return DateTimeUtil.parseFlexibleDateTime(text.subSequence(start, end).toString());
+    }
+
+    private static int monthOf(CharSequence text, int at) {
+        for (int m = 0; m < 12; m++) {
+            int k = m * 3;
+            if (text.charAt(at) == MONTHS.charAt(k)
+                    && text.charAt(at + 1) == MONTHS.charAt(k + 1)
+                    && text.charAt(at + 2) == MONTHS.charAt(k + 2)) {
+                return m + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Finds the last occurrence of {@code token} that lies entirely within
+     * {@code [from, to)}.
+     */
+    private static int lastIndexOf(CharSequence text, String token, int from, int to) {
+        outer:
+        for (int i = to - token.length(); i >= from; i--) {
+            for (int k = 0; k < token.length(); k++) {
+                if (text.charAt(i + k) != token.charAt(k)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static IllegalArgumentException unrecognized(CharSequence text, int start, int end) {
+        return new IllegalArgumentException("Unrecognized format: " + text.subSequence(start, end));
+    }
+}
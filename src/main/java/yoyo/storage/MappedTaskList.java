@@ -0,0 +1,222 @@
+package yoyo.storage;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import yoyo.task.Task;
+import yoyo.util.Constants;
+
+/**
+ * Task list backed by a memory-mapped binary snapshot. Opening it only builds
+ * an index of record offsets; each task is decoded the first time it is read.
+ * Tasks added later live on the heap only.
+ */
+final class MappedTaskList extends AbstractList<Task> implements RandomAccess {
+
+    private static final int NOT_MAPPED = -1;
+
+    private final ByteBuffer mapped;
+    private Task[] decoded;
+    private int[] offsets;
+    private int size;
+
+    private MappedTaskList(ByteBuffer mapped, int[] offsets, int size) {
+        this.mapped = mapped;
+        this.offsets = offsets;
+        this.decoded = new Task[offsets.length];
+        this.size = size;
+    }
+
+    /**
+     * Maps a binary snapshot file and indexes its records. Damaged blocks are
+     * dropped or end indexing as described for {@link BinarySnapshot}. Checking the
+     * block checksums reads the whole file once, but no task is decoded.
+     *
+     * @param file the binary snapshot file
+     * @param warnings collects messages about records that were dropped
+     * @param layout receives the positions of the indexed blocks and records,
+     * or null
+     * @return the lazily decoded list of tasks
+     * @throws IOException if the file cannot be mapped or has an invalid header
+     */
+    static MappedTaskList open(Path file, List<String> warnings, SnapshotLayout layout) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        byte version;
+        int count;
+        try {
+            version = BinarySnapshot.checkHeader(buffer);
+            count = buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw new StreamCorruptedException("Truncated binary header");
+        }
+
+        int[] offsets = new int[Math.max(0, Math.min(count, buffer.remaining()))];
+        int n = version == BinarySnapshot.VERSION_UNCHECKED
+                ? indexRecords(buffer, offsets, warnings)
+                : indexBlocks(buffer, offsets, warnings, layout);
+        return new MappedTaskList(buffer, offsets, n);
+    }
+
+    private static int indexRecords(ByteBuffer buffer, int[] offsets, List<String> warnings) {
+        int pos = buffer.position();
+        int n = 0;
+        for (; n < offsets.length; n++) {
+            try {
+                int length = TaskCodec.recordLength(buffer, pos);
+                offsets[n] = pos;
+                pos += length;
+            } catch (BufferUnderflowException e) {
+                warnings.add(String.format(Constants.ERR_RECORD_SKIPPED, n + 1, "truncated record"));
+                break;
+            } catch (StreamCorruptedException e) {
+                warnings.add(String.format(Constants.ERR_RECORD_SKIPPED, n + 1, e.getMessage()));
+                break;
+            }
+        }
+        return n;
+    }
+
+    private static int indexBlocks(ByteBuffer buffer, int[] offsets, List<String> warnings,
+            SnapshotLayout layout) {
+        int pos = buffer.position();
+        int n = 0;
+        // Records seen in the file, including those of dropped blocks
+        int seen = 0;
+        while (seen < offsets.length) {
+            int length;
+            try {
+                length = BinarySnapshot.checkBlock(buffer, pos);
+            } catch (BufferUnderflowException e) {
+                warnings.add(String.format(Constants.ERR_RECORDS_DROPPED, seen + 1, offsets.length,
+                        "truncated block"));
+                break;
+            } catch (StreamCorruptedException e) {
+                try {
+                    length = BinarySnapshot.blockLength(buffer, pos);
+                } catch (BufferUnderflowException | StreamCorruptedException unframed) {
+                    warnings.add(String.format(Constants.ERR_RECORDS_DROPPED, seen + 1, offsets.length,
+                            e.getMessage()));
+                    break;
+                }
+                // The header still frames the block, so the blocks after it can be read
+                int records = Math.min(buffer.getInt(pos), offsets.length - seen);
+                warnings.add(String.format(Constants.ERR_RECORDS_DROPPED, seen + 1, seen + records, e.getMessage()));
+                seen += records;
+                pos += length;
+                continue;
+            }
+
+            if (layout != null) {
+                layout.addBlock(pos);
+            }
+            int records = Math.min(buffer.getInt(pos), offsets.length - seen);
+            int recordPos = pos + BinarySnapshot.BLOCK_HEADER_BYTES;
+            for (int i = 0; i < records; i++) {
+                if (layout != null) {
+                    layout.addRecord(recordPos);
+                }
+                offsets[n++] = recordPos;
+                try {
+                    recordPos += TaskCodec.recordLength(buffer, recordPos);
+                } catch (StreamCorruptedException e) {
+                    throw new IllegalStateException("Record was validated with its block", e);
+                }
+            }
+            seen += records;
+            pos += length;
+        }
+        if (layout != null) {
+            layout.setLength(pos);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the whole mapped snapshot, e.g. to checksum it.
+     *
+     * @return a read-only view of the mapped file
+     */
+    ByteBuffer snapshot() {
+        return mapped.duplicate().clear();
+    }
+
+    /**
+     * Decodes every task that has not been read yet, so that the list no
+     * longer depends on the mapped file (e.g. before the file is rewritten).
+     */
+    void materialize() {
+        for (int i = 0; i < size; i++) {
+            get(i);
+        }
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        Task task = decoded[index];
+        if (task == null) {
+            try {
+                task = TaskCodec.read(mapped.duplicate().position(offsets[index]));
+            } catch (StreamCorruptedException e) {
+                throw new IllegalStateException("Record was validated when the file was opened", e);
+            }
+            decoded[index] = task;
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        decoded[index] = task;
+        offsets[index] = NOT_MAPPED;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        Objects.checkIndex(index, size + 1);
+        if (size == decoded.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            decoded = Arrays.copyOf(decoded, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        System.arraycopy(decoded, index, decoded, index + 1, size - index);
+        System.arraycopy(offsets, index, offsets, index + 1, size - index);
+        decoded[index] = task;
+        offsets[index] = NOT_MAPPED;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        System.arraycopy(decoded, index + 1, decoded, index, size - index - 1);
+        System.arraycopy(offsets, index + 1, offsets, index, size - index - 1);
+        size--;
+        decoded[size] = null;
+        modCount++;
+        return removed;
+    }
+}
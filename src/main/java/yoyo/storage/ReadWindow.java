@@ -0,0 +1,76 @@
+package yoyo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded, refillable view of an input stream, so that snapshots can be
+ * decoded piece by piece instead of being read into memory whole. The window
+ * only grows when a single record or line does not fit into it.
+ */
+final class ReadWindow {
+
+    private final InputStream in;
+    private ByteBuffer buffer;
+    // The stream position of the first byte of the buffer
+    private long start;
+
+    /**
+     * Constructs an empty window over the given stream.
+     *
+     * @param in the stream to read from
+     * @param capacity the initial window size in bytes
+     */
+    ReadWindow(InputStream in, int capacity) {
+        assert in != null : "Input stream cannot be null";
+        assert capacity > 0 : "Window capacity must be positive, got: " + capacity;
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(capacity).limit(0);
+    }
+
+    /**
+     * Returns the bytes read but not consumed yet, between the position and
+     * the limit of the returned buffer. Callers consume bytes by advancing the
+     * position. The buffer is replaced when the window grows, so it must be
+     * fetched again after every {@link #fill()}.
+     *
+     * @return the array-backed window buffer
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the position in the stream of a byte in {@link #buffer()}.
+     *
+     * @param index the index of the byte in the current buffer
+     * @return the number of stream bytes before it
+     */
+    long streamPosition(int index) {
+        return start + index;
+    }
+
+    /**
+     * Moves the unconsumed bytes to the front of the window, doubling the
+     * window if they fill it completely, and reads until the window is full
+     * or the stream ends.
+     *
+     * @return false if the stream had no more bytes
+     * @throws IOException if an I/O error occurs
+     */
+    boolean fill() throws IOException {
+        if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            start += buffer.position();
+            buffer.compact();
+        }
+        int read = in.readNBytes(buffer.array(), buffer.position(), buffer.remaining());
+        buffer.position(buffer.position() + read);
+        buffer.flip();
+        return read > 0;
+    }
+}
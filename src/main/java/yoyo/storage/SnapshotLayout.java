@@ -0,0 +1,113 @@
+package yoyo.storage;
+
+import java.util.Arrays;
+
+/**
+ * Byte positions of the records in a snapshot file, recorded while the
+ * snapshot is encoded so that single records can later be patched in place.
+ * For each task it holds the position of the byte that carries its done
+ * status; for binary snapshots also the start of each checksummed block.
+ */
+final class SnapshotLayout {
+
+    private int[] statusOffsets = new int[16];
+    private int size;
+    private int[] blockStarts = new int[4];
+    private int blocks;
+    private int length;
+
+    /**
+     * Records the status byte position of the next task.
+     *
+     * @param offset the absolute position in the file
+     */
+    void addRecord(int offset) {
+        if (size == statusOffsets.length) {
+            statusOffsets = Arrays.copyOf(statusOffsets, size * 2);
+        }
+        statusOffsets[size++] = offset;
+    }
+
+    /**
+     * Records the start of the next block of a binary snapshot.
+     *
+     * @param start the absolute position in the file
+     */
+    void addBlock(int start) {
+        if (blocks == blockStarts.length) {
+            blockStarts = Arrays.copyOf(blockStarts, blocks * 2);
+        }
+        blockStarts[blocks++] = start;
+    }
+
+    /**
+     * Returns the number of tasks in the file.
+     *
+     * @return the task count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the status byte of a task.
+     *
+     * @param index the 0-based task index
+     * @return the absolute position in the file
+     */
+    int statusOffset(int index) {
+        assert index >= 0 && index < size : "Record index out of range: " + index;
+        return statusOffsets[index];
+    }
+
+    /**
+     * Returns the length of the file.
+     *
+     * @return the length in bytes
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Sets the length of the file, after the snapshot or an append was
+     * written.
+     *
+     * @param length the length in bytes
+     */
+    void setLength(int length) {
+        this.length = length;
+    }
+
+    /**
+     * Returns the block that holds the given position.
+     *
+     * @param offset an absolute position inside a block
+     * @return the index of the block
+     */
+    int blockOf(int offset) {
+        int i = Arrays.binarySearch(blockStarts, 0, blocks, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Returns the start of a block.
+     *
+     * @param block the block index
+     * @return the absolute position of the block
+     */
+    int blockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * Returns the end of a block, which is where the next block or the file
+     * ends.
+     *
+     * @param block the block index
+     * @return the absolute position after the block
+     */
+    int blockEnd(int block) {
+        return block + 1 < blocks ? blockStarts[block + 1] : length;
+    }
+}
@@ -0,0 +1,221 @@
+package yoyo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+import yoyo.task.Task;
+import yoyo.task.TaskList;
+import yoyo.util.Constants;
+
+/**
+ * Tracks which records of the snapshot file changed since it was last
+ * written, and patches just those bytes in place. Marking or unmarking a task
+ * writes its single status byte (plus, in a binary snapshot, the checksum of
+ * its block); added tasks are appended to the end of the file. Removing,
+ * inserting or reordering tasks shifts later records, so those need a full
+ * rewrite.
+ *
+ * <p>A patch is not atomic the way a full rewrite is. What a crash in the
+ * middle of one can cost:
+ * <ul>
+ * <li>In a binary snapshot, each changed block is written with a single
+ * write, from its first changed status through its checksum. A crash can tear
+ * that write, and the block then fails its checksum: its tasks are dropped
+ * with a warning on the next load, while the blocks around it are kept.
+ * Blocks before it hold their new statuses and blocks after it their old
+ * ones.</li>
+ * <li>Appended blocks are forced to the device before the task count in the
+ * header is raised to include them, so a crash loses the added tasks but
+ * never exposes a half-written block.</li>
+ * <li>In a text snapshot each status is a single byte, so a crash leaves every
+ * status either old or new. Appended lines may be lost, and the last one may
+ * be torn, in which case it is skipped or loads with a cut-off
+ * description.</li>
+ * </ul>
+ * Once {@link #patch} returns, the patch has been forced to the device.
+ */
+final class SnapshotPatcher implements TaskList.Listener {
+
+    private final Path file;
+    private final StorageFormat format;
+    private final BitSet dirty = new BitSet();
+
+    private SnapshotLayout layout;
+    private boolean needsRewrite = true;
+
+    /**
+     * Constructs a patcher for the given snapshot file.
+     *
+     * @param file the snapshot file
+     * @param format the format the snapshot is written in
+     */
+    SnapshotPatcher(Path file, StorageFormat format) {
+        assert file != null && format != null : "File and format cannot be null";
+        this.file = file;
+        this.format = format;
+    }
+
+    /**
+     * Starts tracking changes against a snapshot just written or loaded.
+     *
+     * @param layout the layout of the snapshot, or null if it is unknown
+     */
+    void reset(SnapshotLayout layout) {
+        this.layout = layout;
+        dirty.clear();
+        needsRewrite = layout == null;
+    }
+
+    /**
+     * Demands a full rewrite on the next persist, e.g. because a patch could
+     * not be written.
+     */
+    void requireRewrite() {
+        needsRewrite = true;
+    }
+
+    @Override
+    public void onAdded(int idx1Based, Task task) {
+        if (layout != null && idx1Based <= layout.size()) {
+            requireRewrite(); // inserted before records already in the file
+        }
+    }
+
+    @Override
+    public void onRemoved(int idx1Based, Task task) {
+        requireRewrite();
+    }
+
+    @Override
+    public void onStatusChanged(int idx1Based, Task task) {
+        if (layout != null && idx1Based <= layout.size()) {
+            dirty.set(idx1Based - 1);
+        }
+    }
+
+    @Override
+    public void onReordered() {
+        requireRewrite();
+    }
+
+    /**
+     * Brings the snapshot file up to date with the tasks by patching the
+     * changed records in place, if possible.
+     *
+     * @param tasks the current tasks
+     * @return false if a full rewrite is needed instead
+     * @throws IOException if an I/O error occurs
+     */
+    boolean patch(List<Task> tasks) throws IOException {
+        if (needsRewrite || tasks.size() < layout.size()) {
+            return false;
+        }
+        if (dirty.isEmpty() && tasks.size() == layout.size()) {
+            return true;
+        }
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (format == StorageFormat.BINARY) {
+                patchBinary(ch, tasks);
+            } else {
+                patchText(ch, tasks);
+            }
+            ch.force(false);
+        }
+        dirty.clear();
+        return true;
+    }
+
+    private void patchText(FileChannel ch, List<Task> tasks) throws IOException {
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            byte status = TextSnapshot.status(tasks.get(i));
+            writeFully(ch, ByteBuffer.wrap(new byte[] {status}), layout.statusOffset(i));
+        }
+
+        if (tasks.size() > layout.size()) {
+            ByteArrayOutputStream added = new ByteArrayOutputStream();
+            int end = layout.length();
+            TextSnapshot.writeLines(added, tasks, layout.size(), end, layout);
+            checkLength(end, added);
+            writeFully(ch, ByteBuffer.wrap(added.toByteArray()), end);
+            layout.setLength(end + added.size());
+        }
+    }
+
+    private void patchBinary(FileChannel ch, List<Task> tasks) throws IOException {
+        // The status bits of a block are set in a copy of it, then written together with its checksum
+        int block = -1;
+        ByteBuffer bytes = null;
+        int firstChange = 0;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            int offset = layout.statusOffset(i);
+            int next = layout.blockOf(offset);
+            if (next != block) {
+                writeBlock(ch, block, bytes, firstChange);
+                block = next;
+                bytes = ByteBuffer.allocate(layout.blockEnd(block) - layout.blockStart(block));
+                readFully(ch, bytes, layout.blockStart(block));
+                firstChange = offset - layout.blockStart(block);
+            }
+            bytes.put(offset - layout.blockStart(block), TaskCodec.flags(tasks.get(i)));
+        }
+        writeBlock(ch, block, bytes, firstChange);
+
+        // New blocks go after the last one; the header count makes them visible
+        if (tasks.size() > layout.size()) {
+            ByteArrayOutputStream added = new ByteArrayOutputStream();
+            int end = layout.length();
+            try (DataOutputStream out = new DataOutputStream(added)) {
+                BinarySnapshot.writeBlocks(out, tasks, layout.size(), end, layout);
+            }
+            checkLength(end, added);
+            writeFully(ch, ByteBuffer.wrap(added.toByteArray()), end);
+            layout.setLength(end + added.size());
+            ch.force(false); // the count must not get to the device before the blocks it counts
+            writeFully(ch, ByteBuffer.allocate(Integer.BYTES).putInt(0, tasks.size()), BinarySnapshot.COUNT_OFFSET);
+        }
+    }
+
+    // Appending must not grow the file past the int positions of the layout
+    private static void checkLength(int end, ByteArrayOutputStream added) throws IOException {
+        long length = (long) end + added.size();
+        if (length > Constants.MAX_SNAPSHOT_BYTES) {
+            throw new IOException(String.format(Constants.ERR_SNAPSHOT_TOO_LARGE, length,
+                    Constants.MAX_SNAPSHOT_BYTES));
+        }
+    }
+
+    /**
+     * Writes a patched copy of a block back with its new checksum, from its
+     * first changed byte to its end.
+     */
+    private void writeBlock(FileChannel ch, int block, ByteBuffer bytes, int from) throws IOException {
+        if (block < 0) {
+            return;
+        }
+        int length = bytes.capacity() - Integer.BYTES;
+        bytes.putInt(length, BinarySnapshot.blockChecksum(bytes.array(), length));
+        writeFully(ch, bytes.clear().position(from), layout.blockStart(block));
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Snapshot file is shorter than expected");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, position + buf.position());
+        }
+    }
+}
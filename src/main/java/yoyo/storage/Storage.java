@@ -1,154 +1,477 @@
 package yoyo.storage;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import yoyo.task.Deadline;
-import yoyo.task.Event;
+import yoyo.task.ColumnarTaskList;
 import yoyo.task.Task;
-import yoyo.task.Todo;
+import yoyo.task.TaskList;
 import yoyo.util.Constants;
 
 /**
  * Handles loading and saving of tasks to and from a file. Supports parsing
- * different task types and handles corrupted data gracefully.
+ * different task types, text and binary snapshot formats, and handles
+ * corrupted data gracefully.
  */
-public class Storage {
+public class Storage implements AutoCloseable {
 
     public static final String DEFAULT_PATH = Constants.DEFAULT_DATA_FILE;
 
-    private static final Pattern TODO_P
-            = Pattern.compile(Constants.REGEX_TODO);
-    private static final Pattern DEADLINE_P
-            = Pattern.compile(Constants.REGEX_DEADLINE);
-    private static final Pattern EVENT_P
-            = Pattern.compile(Constants.REGEX_EVENT);
-
     private final Path dataFile;
+    private final Path tempFile;
     private final Path dataDir;
+    private final StorageOptions options;
+    private final Journal journal;
+    private final WriteBehind writer;
+    private final SnapshotPatcher patcher;
+    private MappedTaskList mapped;
+    // Set when the data file is too large to load, so that it is not overwritten
+    private boolean tooLarge;
 
     /**
-     * Constructs a new Storage instance with the given relative path.
+     * Constructs a new Storage instance with the given relative path and the
+     * default options.
      *
      * @param relativePath the relative path to the data file
      */
     public Storage(String relativePath) {
+        this(relativePath, StorageOptions.defaults());
+    }
+
+    /**
+     * Constructs a new Storage instance with the given relative path and
+     * options.
+     *
+     * @param relativePath the relative path to the data file
+     * @param options the storage options
+     */
+    public Storage(String relativePath, StorageOptions options) {
         assert relativePath != null && !relativePath.trim().isEmpty() : "Relative path cannot be null or empty";
+        assert options != null : "Storage options cannot be null";
         this.dataFile = Paths.get(relativePath);
+        this.tempFile = Paths.get(relativePath + Constants.TEMP_FILE_SUFFIX);
         this.dataDir = dataFile.getParent() == null ? Paths.get(".") : dataFile.getParent();
+        this.options = options;
+        this.journal = options.journaled
+                ? new Journal(Paths.get(relativePath + Constants.JOURNAL_FILE_SUFFIX))
+                : null;
+        this.writer = options.writeBehind
+                ? new WriteBehind(new WriteBehind.Sink() {
+                    @Override
+                    public List<Task> takeSnapshot(TaskList tasks) {
+                        if (journal != null) {
+                            journal.compacted(); // the snapshot includes the records logged so far
+                        }
+                        detachMapping();
+                        return tasks.snapshot();
+                    }
+
+                    @Override
+                    public void writeSnapshot(List<Task> tasks) throws IOException {
+                        Storage.this.writeSnapshot(tasks);
+                    }
+
+                    @Override
+                    public void appendRecords(byte[] records) throws IOException {
+                        appendJournal(records);
+                    }
+                }, options.maxDelayMillis, options.maxBatch)
+                : null;
+        this.patcher = options.incremental && !options.journaled && !options.writeBehind
+                ? new SnapshotPatcher(dataFile, options.format)
+                : null;
     }
 
     /**
-     * Loads tasks from the data file. Skips corrupted lines and collects
-     * warnings.
+     * Loads tasks from the data file, detecting whether it is a text or binary
+     * snapshot. Skips corrupted lines and collects warnings. In journal mode,
+     * the journal is replayed on top of the loaded snapshot. A file in a
+     * format other than the configured one is converted right away. With the
+     * mapped option, a binary snapshot is memory-mapped and its tasks are only
+     * decoded when first accessed; otherwise the file is streamed as described
+     * in {@link #load(List, Consumer)}, into a {@link ColumnarTaskList} with
+     * the columnar option.
      *
      * @return a LoadResult containing the loaded tasks and any warnings
      */
     public LoadResult load() {
-        List<Task> tasks = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
+        startLoad();
+        try {
+            if (options.mapped && options.format == StorageFormat.BINARY
+                    && Files.exists(dataFile) && isBinary(dataFile)
+                    && Files.size(dataFile) <= Constants.MAX_SNAPSHOT_BYTES) {
+                SnapshotLayout layout = patcher != null ? new SnapshotLayout() : null;
+                mapped = MappedTaskList.open(dataFile, warnings, layout);
+                ByteBuffer raw = mapped.snapshot();
+                replayJournal(raw.remaining(), Journal.checksum(raw), mapped, warnings::add);
+                if (warnings.isEmpty()) {
+                    loaded(layout, mapped.size(), raw.remaining());
+                }
+                return new LoadResult(mapped, warnings);
+            }
+        } catch (IOException e) {
+            warnings.add(Constants.ERR_FAILED_TO_READ_FILE + e.getMessage());
+        }
 
-        if (!Files.exists(dataFile)) {
-            return new LoadResult(tasks, warnings); // first run; nothing to load
+        List<Task> tasks = options.columnar ? new ColumnarTaskList() : new ArrayList<>();
+        load(tasks, warnings::add);
+        return new LoadResult(tasks, warnings);
+    }
+
+    /**
+     * Streams tasks from the data file into {@code target}, appending each one
+     * as soon as it is decoded. The file is read through a bounded window, so
+     * apart from the tasks themselves only a small, fixed amount of memory is
+     * used however large the file is. Skipped lines are reported to
+     * {@code warnings} as they are found. In journal mode, the journal is then
+     * replayed on {@code target}, and a file in a format other than the
+     * configured one is converted right away. With incremental saving, the
+     * positions of the records are noted while decoding, so that the first
+     * persist can already patch the file loaded into an empty {@code target}.
+     *
+     * @param target the list to append the loaded tasks to, usually empty
+     * @param warnings receives warning messages for corrupted lines
+     */
+    public void load(List<Task> target, Consumer<String> warnings) {
+        assert target != null : "Target list cannot be null";
+        assert warnings != null : "Warning consumer cannot be null";
+        startLoad();
+        boolean[] warned = {false};
+        Consumer<String> warn = warning -> {
+            warned[0] = true;
+            warnings.accept(warning);
+        };
+
+        long length = 0;
+        int crc = 0;
+        StorageFormat format = options.format;
+        // Patching needs the file to exist and its tasks to start the list
+        SnapshotLayout layout = patcher != null && target.isEmpty() && Files.exists(dataFile)
+                ? new SnapshotLayout()
+                : null;
+        if (Files.exists(dataFile)) {
+            try (FileChannel ch = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                checkSize(ch.size());
+                CheckedInputStream checked = new CheckedInputStream(Channels.newInputStream(ch), new CRC32());
+                PushbackInputStream in = new PushbackInputStream(checked, Integer.BYTES);
+                byte[] magic = in.readNBytes(Integer.BYTES);
+                in.unread(magic);
+                format = StorageFormat.detect(magic);
+                if (format == StorageFormat.BINARY) {
+                    BinarySnapshot.decode(in, target::add, warn, layout);
+                } else {
+                    TextSnapshot.decode(in, target::add, warn, ch.size() >= options.parallelLoadThreshold, layout);
+                }
+                // The journal is tied to the checksum of the whole file
+                in.transferTo(OutputStream.nullOutputStream());
+                length = ch.position();
+                crc = (int) checked.getChecksum().getValue();
+            } catch (IOException e) {
+                warn.accept(Constants.ERR_FAILED_TO_READ_FILE + e.getMessage());
+            }
         }
 
-        try {
-            List<String> lines = Files.readAllLines(dataFile, StandardCharsets.UTF_8);
-
-            // Use streams to process lines with line numbers
-            List<Task> parsedTasks = IntStream.range(0, lines.size())
-                    .mapToObj(i -> new Object() {
-                final int lineNo = i + 1;
-                final String line = lines.get(i).trim();
-            })
-                    .filter(obj -> !obj.line.isEmpty())
-                    .map(obj -> {
-                        try {
-                            return parseLine(obj.line);
-                        } catch (IllegalArgumentException ex) {
-                            warnings.add(String.format(Constants.ERR_LINE_SKIPPED, obj.lineNo, ex.getMessage()));
-                            return null;
-                        }
-                    })
-                    .filter(task -> task != null)
-                    .collect(Collectors.toList());
+        replayJournal(length, crc, target, warn);
+        if (format == options.format && !warned[0]) {
+            loaded(layout, target.size(), length);
+        }
 
-            tasks.addAll(parsedTasks);
+        // Convert to the configured format, unless that would drop skipped lines for good
+        if (format != options.format && !warned[0]) {
+            try {
+                save(target);
+            } catch (IOException e) {
+                warnings.accept(Constants.ERR_FAILED_TO_SAVE + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forgets the state of a previous load, and deletes the temporary file of
+     * a save that was interrupted by a crash. The data file still holds the
+     * previous snapshot then.
+     */
+    private void startLoad() {
+        mapped = null;
+        tooLarge = false;
+        if (patcher != null) {
+            patcher.reset(null); // until the file is loaded and its layout known
+        }
+        try {
+            Files.deleteIfExists(tempFile);
         } catch (IOException e) {
-            warnings.add(Constants.ERR_FAILED_TO_READ_FILE + e.getMessage());
+            // Overwritten by the next save anyway
         }
+    }
 
-        return new LoadResult(tasks, warnings);
+    /**
+     * Rejects a data file too large for the int positions of
+     * {@link SnapshotLayout} and {@link MappedTaskList}. Such a file is then
+     * never overwritten, since it holds tasks that were not loaded.
+     *
+     * @param size the size of the data file
+     * @throws IOException if the file is over {@link Constants#MAX_SNAPSHOT_BYTES}
+     */
+    private void checkSize(long size) throws IOException {
+        if (size > Constants.MAX_SNAPSHOT_BYTES) {
+            tooLarge = true;
+            throw new IOException(String.format(Constants.ERR_SNAPSHOT_TOO_LARGE, size,
+                    Constants.MAX_SNAPSHOT_BYTES));
+        }
+    }
+
+    /**
+     * Lets the patcher patch the file just loaded, if the layout recorded
+     * while loading describes every task and the whole file. Otherwise the
+     * next persist rewrites the file.
+     *
+     * @param layout the layout recorded while loading, or null
+     * @param tasks the number of tasks loaded from the file
+     * @param length the length of the file
+     */
+    private void loaded(SnapshotLayout layout, int tasks, long length) {
+        if (layout != null && layout.size() == tasks && layout.length() == length) {
+            patcher.reset(layout);
+        }
+    }
+
+    private void replayJournal(long snapshotLength, int snapshotCrc, List<Task> tasks, Consumer<String> warnings) {
+        if (journal != null) {
+            try {
+                journal.replay(snapshotLength, snapshotCrc, tasks, warnings);
+            } catch (IOException e) {
+                warnings.accept(Constants.ERR_FAILED_TO_READ_FILE + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks whether a file starts with the binary snapshot header, without
+     * reading the rest of it.
+     *
+     * @param file the file to check
+     * @return true if the file is a binary snapshot
+     * @throws IOException if an I/O error occurs
+     */
+    private static boolean isBinary(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return BinarySnapshot.hasMagic(in.readNBytes(Integer.BYTES));
+        }
     }
 
     /**
-     * Saves the current tasks to disk (creates folder if missing).
+     * Saves the current tasks to disk (creates folder if missing) in the
+     * configured format. In journal mode this is a compaction: the journal is
+     * reset on top of the new snapshot. Waits for pending background writes
+     * first.
      *
      * @param tasks the list of tasks to save
      * @throws IOException if an I/O error occurs
      */
     public void save(List<Task> tasks) throws IOException {
         assert tasks != null : "Tasks list cannot be null";
+        flush();
+        if (journal != null) {
+            journal.compacted();
+        }
+        detachMapping();
+        writeSnapshot(tasks);
+    }
+
+    /**
+     * Writes a snapshot file and, in journal mode, starts a new journal on top
+     * of it. The snapshot is written to a temporary file, forced to the device
+     * and then renamed over the data file, so a crash leaves either the old or
+     * the new snapshot, never a truncated one. With write-behind enabled, the
+     * new journal header is forced to the device as well.
+     *
+     * @param tasks the tasks to write
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeSnapshot(List<Task> tasks) throws IOException {
+        if (tooLarge) {
+            throw new IOException(Constants.ERR_SNAPSHOT_NOT_REPLACED);
+        }
         if (!Files.exists(dataDir)) {
             Files.createDirectories(dataDir);
         }
-        List<String> out = tasks.stream()
-                .map(Task::toString)
-                .collect(java.util.stream.Collectors.toList());
-        Files.write(dataFile, out, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        SnapshotLayout layout = patcher != null ? new SnapshotLayout() : null;
+        byte[] raw = options.format == StorageFormat.BINARY
+                ? BinarySnapshot.encode(tasks, layout)
+                : TextSnapshot.encode(tasks, layout);
+        try (FileChannel ch = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(raw);
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(false);
+        }
+        try {
+            Files.move(tempFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (patcher != null) {
+            patcher.reset(layout);
+        }
+        syncDirectory();
+        if (journal != null) {
+            journal.reset(ByteBuffer.wrap(raw), options.writeBehind);
+        }
     }
 
     /**
-     * Parses a line from the data file into a Task object.
+     * Forces the rename of the data file to the device. Not every platform
+     * can open a directory for this (e.g. Windows), in which case the rename
+     * is left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(dataDir, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Best effort only
+        }
+    }
+
+    /**
+     * Appends encoded records to the journal file (creates folder if missing).
      *
-     * @param line the line to parse
-     * @return the parsed Task
-     * @throws IllegalArgumentException if the line format is unrecognized
+     * @param records the encoded records
+     * @throws IOException if an I/O error occurs
      */
-    private static Task parseLine(String line) {
-        assert line != null && !line.trim().isEmpty() : "Line to parse cannot be null or empty";
-        Matcher m;
+    private void appendJournal(byte[] records) throws IOException {
+        if (tooLarge) {
+            throw new IOException(Constants.ERR_SNAPSHOT_NOT_REPLACED);
+        }
+        if (!Files.exists(dataDir)) {
+            Files.createDirectories(dataDir);
+        }
+        journal.append(records, options.writeBehind);
+    }
 
-        m = TODO_P.matcher(line);
-        if (m.matches()) {
-            return createTaskFromMatcher(new Todo(m.group(2)), m.group(1));
+    /**
+     * Decodes all tasks still backed by the mapped snapshot, which must not be
+     * read once the file is rewritten.
+     */
+    private void detachMapping() {
+        if (mapped != null) {
+            mapped.materialize();
+            mapped = null;
         }
+    }
 
-        m = DEADLINE_P.matcher(line);
-        if (m.matches()) {
-            return createTaskFromMatcher(new Deadline(m.group(2), m.group(3)), m.group(1));
+    /**
+     * Subscribes this storage to the mutations of the given task list, so that
+     * {@link #persist(TaskList)} can write only what changed. Has no effect
+     * unless journal mode or incremental saving is enabled.
+     *
+     * @param tasks the task list to follow
+     */
+    public void attach(TaskList tasks) {
+        assert tasks != null : "Task list cannot be null";
+        if (journal != null) {
+            tasks.addListener(journal);
+        }
+        if (patcher != null) {
+            tasks.addListener(patcher);
         }
+    }
 
-        m = EVENT_P.matcher(line);
-        if (m.matches()) {
-            return createTaskFromMatcher(new Event(m.group(2), m.group(3), m.group(4)), m.group(1));
+    /**
+     * Persists the changes made to the given task list since the last call.
+     * Without a journal this is a full snapshot, or with incremental saving a
+     * patch of the changed records in place; in journal mode the pending
+     * records are appended and the journal is compacted into a new snapshot
+     * once it grows past the configured threshold or after a change that
+     * cannot be journaled (e.g. a sort). With write-behind enabled, the writes
+     * are only queued for the background writer.
+     *
+     * <p>The task list is locked while the changes are written, or with
+     * write-behind only while they are queued, so that mutations from other
+     * threads land in the next call instead of being lost.
+     *
+     * @param tasks the task list previously passed to {@link #attach(TaskList)}
+     * @throws IOException if an I/O error occurs, or an earlier background
+     * write failed
+     */
+    public void persist(TaskList tasks) throws IOException {
+        assert tasks != null : "Task list cannot be null";
+        // Keeps mutations from other threads out until the tracked changes are written or queued
+        synchronized (tasks) {
+            persistLocked(tasks);
+        }
+    }
+
+    private void persistLocked(TaskList tasks) throws IOException {
+        try {
+            if (journal != null && !journal.needsSnapshot() && journal.recordCount() < options.compactThreshold) {
+                byte[] records = journal.drainPending();
+                if (writer != null) {
+                    writer.submitRecords(records);
+                } else {
+                    appendJournal(records);
+                }
+            } else if (writer != null) {
+                if (journal != null) {
+                    journal.compacted();
+                }
+                writer.submitSnapshot(tasks);
+            } else if (patcher == null || !patcher.patch(tasks.asList())) {
+                save(tasks.asList());
+            }
+        } catch (IOException e) {
+            if (journal != null) {
+                journal.requireSnapshot(); // the journal may have missed records
+            }
+            if (patcher != null) {
+                patcher.requireRewrite(); // the file may be partly patched
+            }
+            throw e;
         }
+    }
 
-        throw new IllegalArgumentException("Unrecognized format: " + line);
+    /**
+     * Blocks until all queued background writes have reached the disk. Does
+     * nothing unless write-behind is enabled. Must not be called while
+     * holding the lock of the attached task list, which the background writer
+     * needs to take a queued snapshot.
+     *
+     * @throws IOException if a background write failed
+     */
+    public void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
     }
 
     /**
-     * Creates a task and sets its completion status based on the status symbol.
+     * Flushes pending background writes and stops the background writer.
      *
-     * @param task the task to configure
-     * @param statusSymbol the status symbol ("X" for done, " " for not done)
-     * @return the configured task
+     * @throws IOException if a background write failed
      */
-    private static Task createTaskFromMatcher(Task task, String statusSymbol) {
-        if (String.valueOf(Constants.STATUS_DONE).equals(statusSymbol)) {
-            task.markDone();
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
         }
-        return task;
     }
 
     // -------- Helper type for returning both tasks and warnings --------
@@ -0,0 +1,37 @@
+package yoyo.storage;
+
+/**
+ * On-disk formats of the task snapshot file.
+ */
+public enum StorageFormat {
+    /**
+     * Human-readable lines as shown by {@code list}, e.g. {@code [T][X] read}.
+     */
+    TEXT,
+    /**
+     * Compact binary records behind a versioned header, see
+     * {@link BinarySnapshot}.
+     */
+    BINARY;
+
+    /**
+     * Detects the format of raw snapshot bytes from their header.
+     *
+     * @param raw the raw file contents
+     * @return BINARY if the bytes start with the binary magic, TEXT otherwise
+     */
+    static StorageFormat detect(byte[] raw) {
+        return BinarySnapshot.hasMagic(raw) ? BINARY : TEXT;
+    }
+
+    /**
+     * Parses a format name case-insensitively.
+     *
+     * @param name the format name, e.g. "text" or "binary"
+     * @return the matching format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static StorageFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
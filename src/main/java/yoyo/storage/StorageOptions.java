@@ -0,0 +1,205 @@
+package yoyo.storage;
+
+import yoyo.util.Constants;
+
+/**
+ * Immutable set of options controlling how {@link Storage} persists tasks.
+ * Options are changed by deriving a new instance through the {@code with}
+ * methods.
+ */
+public final class StorageOptions {
+
+    // Only assigned on fresh copies inside the with methods
+    StorageFormat format = StorageFormat.TEXT;
+    boolean mapped;
+    boolean columnar;
+    boolean journaled;
+    int compactThreshold = Constants.DEFAULT_JOURNAL_COMPACT_THRESHOLD;
+    boolean writeBehind;
+    long maxDelayMillis = Constants.DEFAULT_WRITE_BEHIND_MAX_DELAY_MS;
+    int maxBatch = Constants.DEFAULT_WRITE_BEHIND_MAX_BATCH;
+    int parallelLoadThreshold = Constants.DEFAULT_PARALLEL_LOAD_THRESHOLD_BYTES;
+    boolean incremental;
+
+    private StorageOptions() {
+    }
+
+    private StorageOptions copy() {
+        StorageOptions copy = new StorageOptions();
+        copy.format = format;
+        copy.mapped = mapped;
+        copy.columnar = columnar;
+        copy.journaled = journaled;
+        copy.compactThreshold = compactThreshold;
+        copy.writeBehind = writeBehind;
+        copy.maxDelayMillis = maxDelayMillis;
+        copy.maxBatch = maxBatch;
+        copy.parallelLoadThreshold = parallelLoadThreshold;
+        copy.incremental = incremental;
+        return copy;
+    }
+
+    /**
+     * Returns the default options: plain text snapshots rewritten
+     * synchronously on every save.
+     *
+     * @return the default options
+     */
+    public static StorageOptions defaults() {
+        return new StorageOptions();
+    }
+
+    /**
+     * Returns the default options overridden by any {@code yoyo.*} system
+     * properties, e.g. {@code -Dyoyo.journal=true}.
+     *
+     * @return the configured options
+     * @throws IllegalArgumentException if a property has an invalid value
+     */
+    public static StorageOptions fromSystemProperties() {
+        return defaults()
+                .withFormat(StorageFormat.fromName(System.getProperty(Constants.PROP_STORAGE_FORMAT, "text")))
+                .withMapped(Boolean.getBoolean(Constants.PROP_STORAGE_MAPPED))
+                .withColumnar(Boolean.getBoolean(Constants.PROP_STORAGE_COLUMNAR))
+                .withJournal(Boolean.getBoolean(Constants.PROP_JOURNAL))
+                .withCompactThreshold(Integer.getInteger(Constants.PROP_JOURNAL_COMPACT_THRESHOLD,
+                        Constants.DEFAULT_JOURNAL_COMPACT_THRESHOLD))
+                .withWriteBehind(Boolean.getBoolean(Constants.PROP_WRITE_BEHIND),
+                        Long.getLong(Constants.PROP_WRITE_BEHIND_MAX_DELAY_MS,
+                                Constants.DEFAULT_WRITE_BEHIND_MAX_DELAY_MS),
+                        Integer.getInteger(Constants.PROP_WRITE_BEHIND_MAX_BATCH,
+                                Constants.DEFAULT_WRITE_BEHIND_MAX_BATCH))
+                .withParallelLoadThreshold(Integer.getInteger(Constants.PROP_PARALLEL_LOAD_THRESHOLD,
+                        Constants.DEFAULT_PARALLEL_LOAD_THRESHOLD_BYTES))
+                .withIncrementalSave(Boolean.getBoolean(Constants.PROP_INCREMENTAL_SAVE));
+    }
+
+    /**
+     * Returns a copy that writes snapshots in the given format. Files in the
+     * other format are still read, and converted on load.
+     *
+     * @param format the snapshot format
+     * @return the updated options
+     */
+    public StorageOptions withFormat(StorageFormat format) {
+        assert format != null : "Storage format cannot be null";
+        StorageOptions copy = copy();
+        copy.format = format;
+        return copy;
+    }
+
+    /**
+     * Returns a copy that memory-maps binary snapshots on load and decodes
+     * each task lazily on first access, instead of decoding all of them up
+     * front. Has no effect on text snapshots.
+     *
+     * <p>The mapping only speeds up loading. The first save that rewrites
+     * the snapshot file decodes every task not read yet, since the mapped
+     * file is about to be replaced, so that save costs as much as a full
+     * load would have. Journal appends and {@link #withIncrementalSave}
+     * patches leave the file in place and keep the tasks mapped.
+     *
+     * @param mapped true to map binary snapshots
+     * @return the updated options
+     */
+    public StorageOptions withMapped(boolean mapped) {
+        StorageOptions copy = copy();
+        copy.mapped = mapped;
+        return copy;
+    }
+
+    /**
+     * Returns a copy that loads tasks into a {@link yoyo.task.ColumnarTaskList},
+     * which keeps them as columns of primitives and materializes each task
+     * when it is read, instead of into a list of task objects. Mapped binary
+     * snapshots are still mapped.
+     *
+     * @param columnar true to load into columns
+     * @return the updated options
+     */
+    public StorageOptions withColumnar(boolean columnar) {
+        StorageOptions copy = copy();
+        copy.columnar = columnar;
+        return copy;
+    }
+
+    /**
+     * Returns a copy with journal mode switched on or off. In journal mode each
+     * mutation appends a record to a journal file and the snapshot is only
+     * rewritten during compaction.
+     *
+     * @param journaled true to enable the journal
+     * @return the updated options
+     */
+    public StorageOptions withJournal(boolean journaled) {
+        StorageOptions copy = copy();
+        copy.journaled = journaled;
+        return copy;
+    }
+
+    /**
+     * Returns a copy with the number of journal records after which the
+     * journal is compacted into a new snapshot.
+     *
+     * @param compactThreshold the number of records, must be positive
+     * @return the updated options
+     */
+    public StorageOptions withCompactThreshold(int compactThreshold) {
+        assert compactThreshold > 0 : "Compaction threshold must be positive, got: " + compactThreshold;
+        StorageOptions copy = copy();
+        copy.compactThreshold = compactThreshold;
+        return copy;
+    }
+
+    /**
+     * Returns a copy with write-behind persistence switched on or off. With
+     * write-behind, {@link Storage#persist} only queues the write; a background
+     * thread writes and fsyncs each batch once it holds {@code maxBatch}
+     * submissions or its oldest one is {@code maxDelayMillis} old.
+     *
+     * @param writeBehind true to enable write-behind
+     * @param maxDelayMillis the longest time a change may stay unwritten
+     * @param maxBatch the number of queued changes that triggers a write
+     * @return the updated options
+     */
+    public StorageOptions withWriteBehind(boolean writeBehind, long maxDelayMillis, int maxBatch) {
+        assert maxDelayMillis >= 0 : "Max delay cannot be negative, got: " + maxDelayMillis;
+        assert maxBatch > 0 : "Max batch must be positive, got: " + maxBatch;
+        StorageOptions copy = copy();
+        copy.writeBehind = writeBehind;
+        copy.maxDelayMillis = maxDelayMillis;
+        copy.maxBatch = maxBatch;
+        return copy;
+    }
+
+    /**
+     * Returns a copy with the text snapshot size from which loading parses
+     * newline-aligned chunks of the file in parallel.
+     *
+     * @param bytes the minimum file size in bytes for a parallel load
+     * @return the updated options
+     */
+    public StorageOptions withParallelLoadThreshold(int bytes) {
+        assert bytes >= 0 : "Parallel load threshold cannot be negative, got: " + bytes;
+        StorageOptions copy = copy();
+        copy.parallelLoadThreshold = bytes;
+        return copy;
+    }
+
+    /**
+     * Returns a copy with incremental saving switched on or off. When enabled,
+     * {@link Storage#persist} patches only the changed records of the snapshot
+     * file in place: a mark or unmark rewrites one status byte and added
+     * tasks are appended. Deletes and reorderings still rewrite the whole
+     * file, as does the first persist after loading. Has no effect in journal
+     * or write-behind mode.
+     *
+     * @param incremental true to patch the snapshot in place
+     * @return the updated options
+     */
+    public StorageOptions withIncrementalSave(boolean incremental) {
+        StorageOptions copy = copy();
+        copy.incremental = incremental;
+        return copy;
+    }
+}
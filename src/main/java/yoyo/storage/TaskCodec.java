@@ -0,0 +1,164 @@
+package yoyo.storage;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import yoyo.task.Deadline;
+import yoyo.task.Event;
+import yoyo.task.Task;
+import yoyo.task.Todo;
+import yoyo.util.Constants;
+
+/**
+ * Encodes single tasks into a compact binary record and back. A record is a
+ * type byte whose high bit holds the done status, the length-prefixed UTF-8
+ * description and, for deadlines and events, their times as epoch minutes.
+ */
+final class TaskCodec {
+
+    static final byte TYPE_TODO = 'T';
+    static final byte TYPE_DEADLINE = 'D';
+    static final byte TYPE_EVENT = 'E';
+
+    private static final int DONE_BIT = 0x80;
+
+    // An event record with the longest allowed description
+    static final int MAX_RECORD_BYTES = 1 + Integer.BYTES + Constants.MAX_DESCRIPTION_BYTES + 2 * Long.BYTES;
+
+    private TaskCodec() {
+        // Utility class
+    }
+
+    /**
+     * Writes a task as a binary record.
+     *
+     * @param out the output to write to
+     * @param task the task to encode
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(DataOutput out, Task task) throws IOException {
+        assert task != null : "Task to encode cannot be null";
+        byte[] desc = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        assert desc.length <= Constants.MAX_DESCRIPTION_BYTES : "Task constructor admitted an over-long description";
+        out.writeByte(flags(task));
+        out.writeInt(desc.length);
+        out.write(desc);
+        if (task instanceof Deadline deadline) {
+            out.writeLong(deadline.getByMinute());
+        } else if (task instanceof Event event) {
+            out.writeLong(event.getFromMinute());
+            out.writeLong(event.getToMinute());
+        }
+    }
+
+    /**
+     * Returns the first byte of a task's record: its type, with the done
+     * status in the high bit. Marking a task only changes this byte.
+     *
+     * @param task the task
+     * @return the type and status byte
+     */
+    static byte flags(Task task) {
+        byte type = task instanceof Deadline ? TYPE_DEADLINE
+                : task instanceof Event ? TYPE_EVENT
+                : TYPE_TODO;
+        return (byte) (task.isDone() ? type | DONE_BIT : type);
+    }
+
+    /**
+     * Reads a task from a binary record at the buffer's position, advancing
+     * the position past the record.
+     *
+     * @param in the buffer to read from
+     * @return the decoded task
+     * @throws BufferUnderflowException if the record is truncated
+     * @throws StreamCorruptedException if the record has an unknown type, an
+     * invalid length or a blank description
+     * @throws IllegalArgumentException if the decoded fields are invalid
+     */
+    static Task read(ByteBuffer in) throws StreamCorruptedException {
+        int flags = in.get() & 0xFF;
+        byte type = (byte) (flags & ~DONE_BIT);
+        boolean done = (flags & DONE_BIT) != 0;
+        String description = readString(in);
+
+        return switch (type) {
+            case TYPE_TODO ->
+                new Todo(description, done);
+            case TYPE_DEADLINE ->
+                new Deadline(description, in.getLong(), done);
+            case TYPE_EVENT ->
+                new Event(description, in.getLong(), in.getLong(), done);
+            default ->
+                throw new StreamCorruptedException("Unknown task type: " + type);
+        };
+    }
+
+    /**
+     * Returns the length of the record starting at the given absolute
+     * position, validating its framing without decoding it.
+     *
+     * @param in the buffer holding the record
+     * @param pos the absolute position of the record
+     * @return the record length in bytes
+     * @throws BufferUnderflowException if the record is truncated
+     * @throws StreamCorruptedException if the record has an unknown type or an
+     * invalid length
+     */
+    static int recordLength(ByteBuffer in, int pos) throws StreamCorruptedException {
+        if (in.limit() - pos < 1 + Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        byte type = (byte) (in.get(pos) & ~DONE_BIT);
+        int length = in.getInt(pos + 1);
+        if (length <= 0 || length > Constants.MAX_DESCRIPTION_BYTES) {
+            throw new StreamCorruptedException("Invalid description length: " + length);
+        }
+        int dates = switch (type) {
+            case TYPE_TODO ->
+                0;
+            case TYPE_DEADLINE ->
+                1;
+            case TYPE_EVENT ->
+                2;
+            default ->
+                throw new StreamCorruptedException("Unknown task type: " + type);
+        };
+        int total = 1 + Integer.BYTES + length + dates * Long.BYTES;
+        if (total > in.limit() - pos) {
+            throw new BufferUnderflowException();
+        }
+        if (type == TYPE_EVENT && in.getLong(pos + total - Long.BYTES) < in.getLong(pos + total - 2 * Long.BYTES)) {
+            throw new StreamCorruptedException("Event end time must be after start time.");
+        }
+        return total;
+    }
+
+    private static String readString(ByteBuffer in) throws StreamCorruptedException {
+        int length = in.getInt();
+        if (length <= 0 || length > Constants.MAX_DESCRIPTION_BYTES) {
+            throw new StreamCorruptedException("Invalid description length: " + length);
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (s.trim().isEmpty()) {
+            // A task never has one; the record cannot be trusted
+            throw new StreamCorruptedException("Blank description");
+        }
+        return s;
+    }
+}
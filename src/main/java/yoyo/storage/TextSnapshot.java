@@ -0,0 +1,302 @@
+package yoyo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import yoyo.task.Task;
+import yoyo.util.Constants;
+
+/**
+ * Text snapshot format: one task per line, as shown by {@code list}. Snapshots
+ * are read in bounded windows, and large ones are parsed in parallel, in
+ * chunks split at line boundaries.
+ */
+final class TextSnapshot {
+
+    // Chunks per core, so that chunks with slow lines do not leave cores idle
+    private static final int CHUNKS_PER_CORE = 4;
+
+    // The status character follows the ASCII "[T][" that starts every line
+    private static final int STATUS_OFFSET = 4;
+
+    // Initial read window; grows only for lines longer than this
+    private static final int WINDOW_BYTES = 4 * 1024 * 1024;
+
+    private TextSnapshot() {
+        // Utility class
+    }
+
+    /**
+     * Encodes the tasks as a text snapshot, one task per line.
+     *
+     * @param tasks the tasks to encode
+     * @param layout receives the positions of the status characters, or null
+     * @return the snapshot bytes
+     */
+    static byte[] encode(List<Task> tasks, SnapshotLayout layout) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tasks.size() * 48);
+        writeLines(out, tasks, 0, 0, layout);
+        if (layout != null) {
+            layout.setLength(out.size());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the tasks from {@code from} onwards as lines, e.g. to append
+     * them to an existing snapshot.
+     *
+     * @param out the output to write the lines to
+     * @param tasks the tasks
+     * @param from the index of the first task to encode
+     * @param base the file position that the start of {@code out} will have
+     * @param layout receives the positions of the status characters, or null
+     */
+    static void writeLines(ByteArrayOutputStream out, List<Task> tasks, int from, int base, SnapshotLayout layout) {
+        for (int i = from; i < tasks.size(); i++) {
+            if (layout != null) {
+                layout.addRecord(base + out.size() + STATUS_OFFSET);
+            }
+            out.writeBytes((tasks.get(i).toString() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the status character of a task as it appears in its line.
+     *
+     * @param task the task
+     * @return the status byte
+     */
+    static byte status(Task task) {
+        return (byte) (task.isDone() ? Constants.STATUS_DONE : Constants.STATUS_NOT_DONE);
+    }
+
+    /**
+     * Parses a text snapshot from a stream, skipping corrupted lines. The
+     * stream is read in newline-aligned windows, so only one window of raw
+     * bytes is held in memory at a time; each task is handed to {@code sink}
+     * once its window is parsed. With {@code parallel} set, every window is
+     * split into chunks that are decoded and parsed on the common fork-join
+     * pool. Tasks and warnings come out in file order either way, with exact
+     * line numbers.
+     *
+     * <p>With a layout, the positions of the status characters are recorded
+     * in it as {@link #encode} does, for as long as the lines are written the
+     * way {@code encode} writes them. The length of the snapshot is only
+     * recorded if it ends with a line break, so that lines can be appended.
+     *
+     * @param in the stream positioned at the start of the snapshot
+     * @param sink receives the parsed tasks in file order
+     * @param warnings receives messages about skipped lines
+     * @param parallel true to parse each window in parallel chunks
+     * @param layout receives the positions of the status characters, or null
+     * @throws IOException if the stream cannot be read
+     */
+    static void decode(InputStream in, Consumer<Task> sink, Consumer<String> warnings, boolean parallel,
+            SnapshotLayout layout) throws IOException {
+        ReadWindow window = new ReadWindow(in, WINDOW_BYTES);
+        int linesBefore = 0;
+        boolean endsWithNewline = true;
+        boolean more = true;
+        while (more) {
+            more = window.fill();
+            ByteBuffer buf = window.buffer();
+            // Hold back a trailing partial line until the rest of it is read
+            int end = more ? afterLastNewline(buf) : buf.limit();
+            if (end > buf.position()) {
+                linesBefore += parseWindow(buf.array(), buf.position(), end, sink, warnings, linesBefore, parallel,
+                        layout, window.streamPosition(0));
+                endsWithNewline = buf.get(end - 1) == '\n';
+                buf.position(end);
+            }
+        }
+        if (layout != null && endsWithNewline) {
+            layout.setLength((int) window.streamPosition(window.buffer().position()));
+        }
+    }
+
+    /**
+     * Returns the position right after the last '\n' in the unread part of the
+     * buffer, or the buffer's position if there is none.
+     */
+    private static int afterLastNewline(ByteBuffer buf) {
+        byte[] raw = buf.array();
+        for (int i = buf.limit(); i > buf.position(); i--) {
+            if (raw[i - 1] == '\n') {
+                return i;
+            }
+        }
+        return buf.position();
+    }
+
+    /**
+     * Parses the complete lines in {@code raw[from, to)} and passes on their
+     * tasks and warnings, and their status positions to the layout if given.
+     * {@code base} is the position in the file of {@code raw[0]}.
+     *
+     * @return the number of lines parsed
+     */
+    private static int parseWindow(byte[] raw, int from, int to, Consumer<Task> sink, Consumer<String> warnings,
+            int linesBefore, boolean parallel, SnapshotLayout layout, long base) {
+        boolean locate = layout != null;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Chunk> chunks;
+        if (!parallel || cores == 1) {
+            chunks = List.of(parseChunk(raw, from, to, locate));
+        } else {
+            int[] bounds = splitAtLines(raw, from, to, cores * CHUNKS_PER_CORE);
+            chunks = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> parseChunk(raw, bounds[i], bounds[i + 1], locate))
+                    .toList();
+        }
+
+        int lines = 0;
+        for (Chunk chunk : chunks) {
+            chunk.tasks.forEach(sink);
+            chunk.addWarnings(warnings, linesBefore + lines);
+            if (locate) {
+                chunk.addStatusOffsets(layout, base);
+            }
+            lines += chunk.lines;
+        }
+        return lines;
+    }
+
+    /**
+     * Picks chunk boundaries within {@code raw[from, to)} so that every chunk
+     * starts right after a '\n' byte. Since UTF-8 never uses that byte inside
+     * a multi-byte sequence, each chunk can be decoded on its own.
+     *
+     * @param raw the raw file contents
+     * @param from the start of the range to split
+     * @param to the end of the range to split
+     * @param chunks the desired number of chunks
+     * @return ascending boundaries, starting with {@code from} and ending with
+     * {@code to}
+     */
+    private static int[] splitAtLines(byte[] raw, int from, int to, int chunks) {
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = from;
+        int n = 1;
+        for (int i = 1; i < chunks; i++) {
+            int pos = Math.max(from + (int) ((long) (to - from) * i / chunks), bounds[n - 1] + 1);
+            while (pos < to && raw[pos - 1] != '\n') {
+                pos++;
+            }
+            if (pos > bounds[n - 1] && pos < to) {
+                bounds[n++] = pos;
+            }
+        }
+        bounds[n++] = to;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /**
+     * Parses the lines of one chunk. Line numbers in the result are relative
+     * to the start of the chunk. With {@code locate} set, the index in
+     * {@code raw} of each task's status character is kept as well, or -1 for
+     * a line not written the way {@link #encode} writes it.
+     */
+    private static Chunk parseChunk(byte[] raw, int from, int to, boolean locate) {
+        String text = new String(raw, from, to - from, StandardCharsets.UTF_8);
+        Chunk chunk = new Chunk();
+        int pos = 0;
+        int length = text.length();
+        // Line breaks are single bytes in UTF-8, so lines can be followed in the raw bytes too
+        int lineStart = from;
+        while (pos < length) {
+            chunk.lines++;
+            int end = pos;
+            while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+                end++;
+            }
+            int next = end < length && text.charAt(end) == '\r' && end + 1 < length && text.charAt(end + 1) == '\n'
+                    ? end + 2
+                    : end + 1;
+
+            // Trim the line in place
+            int start = pos;
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if (start < end) {
+                try {
+                    Task task = LineParser.parse(text, start, end);
+                    chunk.tasks.add(task);
+                    if (locate) {
+                        chunk.addStatusOffset(start == pos && raw[lineStart] == '['
+                                && raw[lineStart + STATUS_OFFSET] == status(task)
+                                ? lineStart + STATUS_OFFSET
+                                : -1);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    chunk.skippedLines.add(chunk.lines);
+                    chunk.skippedReasons.add(ex.getMessage());
+                }
+            }
+            if (locate) {
+                lineStart = nextLine(raw, lineStart, to);
+            }
+            pos = next;
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the index in {@code raw} of the line after the one starting at
+     * {@code start}, breaking lines where {@link #parseChunk} does.
+     */
+    private static int nextLine(byte[] raw, int start, int to) {
+        int end = start;
+        while (end < to && raw[end] != '\n' && raw[end] != '\r') {
+            end++;
+        }
+        return end < to && raw[end] == '\r' && end + 1 < to && raw[end + 1] == '\n' ? end + 2 : end + 1;
+    }
+
+    /**
+     * Tasks and skipped lines of one chunk, confined to the thread parsing it.
+     */
+    private static final class Chunk {
+
+        final List<Task> tasks = new ArrayList<>();
+        final List<Integer> skippedLines = new ArrayList<>();
+        final List<String> skippedReasons = new ArrayList<>();
+        int lines;
+        private int[] statusOffsets = new int[0];
+        private int located;
+
+        void addStatusOffset(int index) {
+            if (located == statusOffsets.length) {
+                statusOffsets = Arrays.copyOf(statusOffsets, Math.max(16, located * 2));
+            }
+            statusOffsets[located++] = index;
+        }
+
+        // Stops at the first line the layout cannot describe, leaving the layout short
+        void addStatusOffsets(SnapshotLayout layout, long base) {
+            for (int i = 0; i < located && statusOffsets[i] >= 0; i++) {
+                layout.addRecord((int) (base + statusOffsets[i]));
+            }
+        }
+
+        void addWarnings(Consumer<String> warnings, int linesBefore) {
+            for (int i = 0; i < skippedLines.size(); i++) {
+                warnings.accept(String.format(Constants.ERR_LINE_SKIPPED,
+                        linesBefore + skippedLines.get(i), skippedReasons.get(i)));
+            }
+        }
+    }
+}
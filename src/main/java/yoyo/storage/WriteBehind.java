@@ -0,0 +1,286 @@
+package yoyo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import yoyo.task.Task;
+import yoyo.task.TaskList;
+
+/**
+ * Background writer that takes persistence off the command thread. Submitted
+ * work is coalesced: a request for a snapshot replaces an older one together
+ * with all journal records queued before it, and journal records queued
+ * together are appended with a single write and fsync (group commit).
+ *
+ * <p>Requesting a snapshot only marks the task list as due for one. The
+ * writer thread takes the snapshot itself once the batch is written, holding
+ * the task list's lock, so the command thread never copies the list. The lock
+ * order is the task list first, then this writer, as in
+ * {@link Storage#persist}; {@link #flush()} must therefore not be called
+ * while holding the task list's lock.
+ *
+ * <p>A batch is written once it holds {@code maxBatch} submissions or its
+ * oldest submission is {@code maxDelayMillis} old, whichever comes first. An
+ * I/O failure is reported by the next call to {@link #submitRecords},
+ * {@link #submitSnapshot} or {@link #flush()}.
+ */
+final class WriteBehind implements AutoCloseable {
+
+    /**
+     * Performs the actual writes on the background thread.
+     */
+    interface Sink {
+
+        /**
+         * Takes an immutable snapshot of the tasks to write. Called on the
+         * background thread holding the task list's lock, so that no mutation
+         * is half logged.
+         *
+         * @param tasks the task list passed to {@link #submitSnapshot}
+         * @return the tasks to pass to {@link #writeSnapshot}
+         */
+        List<Task> takeSnapshot(TaskList tasks);
+
+        /**
+         * Writes a full snapshot of the given tasks.
+         *
+         * @param tasks the tasks to write
+         * @throws IOException if an I/O error occurs
+         */
+        void writeSnapshot(List<Task> tasks) throws IOException;
+
+        /**
+         * Appends encoded journal records.
+         *
+         * @param records the records to append
+         * @throws IOException if an I/O error occurs
+         */
+        void appendRecords(byte[] records) throws IOException;
+    }
+
+    private final Sink sink;
+    private final long maxDelayMillis;
+    private final int maxBatch;
+
+    // Guarded by this
+    private TaskList snapshotOf;
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private int queued;
+    private long oldestQueuedAt;
+    private boolean writing;
+    private int flushWaiters;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Constructs and starts a background writer.
+     *
+     * @param sink the target of the writes
+     * @param maxDelayMillis the longest time a submission may wait to be written
+     * @param maxBatch the number of submissions that triggers an immediate write
+     */
+    WriteBehind(Sink sink, long maxDelayMillis, int maxBatch) {
+        assert sink != null : "Sink cannot be null";
+        assert maxDelayMillis >= 0 && maxBatch > 0 : "Invalid write-behind policy";
+        this.sink = sink;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxBatch = maxBatch;
+        Thread thread = new Thread(this::run, "yoyo-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues journal records to be appended after everything queued so far.
+     *
+     * @param encoded the encoded records
+     * @throws IOException if an earlier background write failed
+     */
+    synchronized void submitRecords(byte[] encoded) throws IOException {
+        if (encoded.length == 0) {
+            return;
+        }
+        checkOpen();
+        records.writeBytes(encoded);
+        enqueued();
+    }
+
+    /**
+     * Queues a full snapshot of the task list as it will be when the batch is
+     * written. It supersedes every snapshot and journal record queued before
+     * it, and also the records queued after it, which it will include.
+     *
+     * @param tasks the task list to write
+     * @throws IOException if an earlier background write failed
+     */
+    synchronized void submitSnapshot(TaskList tasks) throws IOException {
+        checkOpen();
+        snapshotOf = tasks;
+        records.reset();
+        enqueued();
+    }
+
+    /**
+     * Blocks until everything submitted so far has been written.
+     *
+     * @throws IOException if a background write failed
+     */
+    synchronized void flush() throws IOException {
+        boolean interrupted = false;
+        flushWaiters++;
+        notifyAll();
+        try {
+            while ((queued > 0 || writing) && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            flushWaiters--;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Writes everything submitted so far and stops the background thread.
+     *
+     * @throws IOException if a background write failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        rethrowFailure();
+        if (closed) {
+            throw new IOException("Storage has been closed");
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+
+    private void enqueued() {
+        if (queued == 0) {
+            oldestQueuedAt = System.currentTimeMillis();
+        }
+        queued++;
+        if (queued == 1 || queued >= maxBatch) {
+            notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            TaskList source;
+            synchronized (this) {
+                if (!awaitBatch()) {
+                    return;
+                }
+                source = snapshotOf;
+            }
+
+            List<Task> batchSnapshot = null;
+            byte[] batchRecords = null;
+            if (source != null) {
+                synchronized (source) {
+                    synchronized (this) {
+                        if (snapshotOf == source) {
+                            // Includes every record queued since the snapshot was asked for
+                            batchSnapshot = sink.takeSnapshot(source);
+                            batchRecords = new byte[0];
+                            startBatch();
+                        }
+                    }
+                }
+            } else {
+                synchronized (this) {
+                    if (snapshotOf == null) {
+                        batchRecords = records.toByteArray();
+                        startBatch();
+                    }
+                }
+            }
+            if (batchRecords == null) {
+                continue; // a snapshot was asked for in the meantime
+            }
+
+            IOException error = null;
+            try {
+                if (batchSnapshot != null) {
+                    sink.writeSnapshot(batchSnapshot);
+                }
+                if (batchRecords.length > 0) {
+                    sink.appendRecords(batchRecords);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                writing = false;
+                if (error != null) {
+                    failure = error;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Empties the queue for the batch being written. Must be called holding the monitor
+    private void startBatch() {
+        snapshotOf = null;
+        records.reset();
+        queued = 0;
+        writing = true;
+    }
+
+    /**
+     * Waits until the queued batch is due according to the policy, or until a
+     * flush or close asks for it. Must be called holding the monitor.
+     *
+     * @return false if the writer was closed with nothing left to write
+     */
+    private boolean awaitBatch() {
+        while (true) {
+            if (queued == 0) {
+                if (closed) {
+                    return false;
+                }
+            } else {
+                long waited = System.currentTimeMillis() - oldestQueuedAt;
+                if (queued >= maxBatch || waited >= maxDelayMillis || closed || flushWaiters > 0) {
+                    return true;
+                }
+            }
+            try {
+                if (queued == 0) {
+                    wait();
+                } else {
+                    wait(Math.max(1, maxDelayMillis - (System.currentTimeMillis() - oldestQueuedAt)));
+                }
+            } catch (InterruptedException e) {
+                closed = true; // write what is queued, then stop
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package yoyo.task;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Task list that stores its tasks column by column instead of as objects: a
+ * byte per type, a bit per status, the times as epoch minutes and the
+ * descriptions. A task takes about 25 bytes besides its description, against
+ * 24 to 40 for a task object and the reference to it. Sorting reads the
+ * contiguous columns instead of following a reference per task.
+ *
+ * <p>{@link #get} materializes a task from its columns on demand. The list
+ * keeps only a weak reference to it, so it is reclaimed once nothing else
+ * uses it, but returned again for as long as something does. The indexes of
+ * a {@link TaskList} identify tasks by id and position, and its snapshots
+ * are copies of the columns, so none of them keeps tasks alive. Tasks must
+ * not be modified after they were added, as the list would not see the
+ * change; set an updated copy instead, as {@link TaskList} does. Times are
+ * kept to the minute. References cleared by the garbage collector are
+ * dropped in batches, so tasks read once, e.g. while saving, leave nothing
+ * behind.
+ *
+ * <p>{@link SortOrder} sorts this list from the columns, without
+ * materializing any task.
+ */
+public final class ColumnarTaskList extends AbstractList<Task> implements RandomAccess {
+
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private byte[] types = new byte[16];
+    // One status bit per task, 64 to a word; bits at and beyond size are clear
+    private long[] done = new long[1];
+    // The due time of deadlines and the start of events; Task.NO_DATE for todos
+    private long[] starts = new long[16];
+    // The end of events
+    private long[] ends = new long[16];
+    private String[] descriptions = new String[16];
+    private WeakReference<?>[] views = new WeakReference<?>[16];
+    private final ReferenceQueue<Task> cleared = new ReferenceQueue<>();
+    private int clearedCount;
+    private int size;
+
+    /**
+     * Constructs an empty list.
+     */
+    public ColumnarTaskList() {
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        expunge();
+        Task task = views[index] == null ? null : (Task) views[index].get();
+        if (task == null) {
+            task = materialize(index);
+            views[index] = view(task);
+        }
+        return task;
+    }
+
+    private WeakReference<Task> view(Task task) {
+        return new WeakReference<>(task, cleared);
+    }
+
+    // Drops the references to reclaimed tasks once many of them were reclaimed
+    private void expunge() {
+        while (cleared.poll() != null) {
+            clearedCount++;
+        }
+        if (clearedCount > 16 + size / 8) {
+            // Sweeping only after many were cleared keeps its cost constant per task
+            for (int i = 0; i < size; i++) {
+                if (views[i] != null && views[i].refersTo(null)) {
+                    views[i] = null;
+                }
+            }
+            clearedCount = 0;
+        }
+    }
+
+    private Task materialize(int index) {
+        boolean isDone = isDoneAt(index);
+        return switch (typeAt(index)) {
+            case TODO -> new Todo(descriptions[index], isDone);
+            case DEADLINE -> new Deadline(descriptions[index], starts[index], isDone);
+            case EVENT -> new Event(descriptions[index], starts[index], ends[index], isDone);
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        store(index, task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        Objects.checkIndex(index, size + 1);
+        expunge();
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            views = Arrays.copyOf(views, capacity);
+            done = Arrays.copyOf(done, (capacity + 63) >>> 6);
+        }
+        int moved = size - index;
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(ends, index, ends, index + 1, moved);
+        System.arraycopy(descriptions, index, descriptions, index + 1, moved);
+        System.arraycopy(views, index, views, index + 1, moved);
+        shiftDoneUp(index);
+        size++;
+        store(index, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(starts, index + 1, starts, index, moved);
+        System.arraycopy(ends, index + 1, ends, index, moved);
+        System.arraycopy(descriptions, index + 1, descriptions, index, moved);
+        System.arraycopy(views, index + 1, views, index, moved);
+        shiftDoneDown(index);
+        size--;
+        descriptions[size] = null;
+        views[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    private void store(int index, Task task) {
+        assert task != null : "Task cannot be null";
+        types[index] = (byte) task.getType().ordinal();
+        setDone(index, task.isDone());
+        descriptions[index] = task.getDescription();
+        starts[index] = task.getSortMinute();
+        ends[index] = task instanceof Event event ? event.getToMinute() : 0;
+        views[index] = view(task);
+    }
+
+    /**
+     * Returns an unmodifiable copy of the list as it is now. Only the columns
+     * are copied; every read materializes a new task, which the copy does not
+     * keep. As the copy never changes, any number of threads may read it.
+     *
+     * @return the copy
+     */
+    List<Task> frozenCopy() {
+        ColumnarTaskList copy = new ColumnarTaskList();
+        copy.types = Arrays.copyOf(types, size);
+        copy.done = Arrays.copyOf(done, (size + 63) >>> 6);
+        copy.starts = Arrays.copyOf(starts, size);
+        copy.ends = Arrays.copyOf(ends, size);
+        copy.descriptions = Arrays.copyOf(descriptions, size);
+        copy.size = size;
+        return new Frozen(copy);
+    }
+
+    private static final class Frozen extends AbstractList<Task> implements RandomAccess {
+
+        private final ColumnarTaskList columns;
+
+        Frozen(ColumnarTaskList columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public Task get(int index) {
+            Objects.checkIndex(index, columns.size);
+            return columns.materialize(index);
+        }
+
+        @Override
+        public int size() {
+            return columns.size;
+        }
+    }
+
+    /**
+     * Returns the type of the task at the given index.
+     */
+    TaskType typeAt(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Checks whether the task at the given index is done.
+     */
+    boolean isDoneAt(int index) {
+        return (done[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setDone(int index, boolean isDone) {
+        if (isDone) {
+            done[index >>> 6] |= 1L << index;
+        } else {
+            done[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    // Moves the status bits from index to size - 1 up by one, a word at a time
+    private void shiftDoneUp(int index) {
+        int first = index >>> 6;
+        for (int w = size >>> 6; w > first; w--) {
+            done[w] = (done[w] << 1) | (done[w - 1] >>> 63);
+        }
+        long below = (1L << index) - 1;
+        done[first] = (done[first] & below) | ((done[first] << 1) & ~below);
+    }
+
+    // Moves the status bits from index + 1 to size - 1 down by one, dropping the bit at index
+    private void shiftDoneDown(int index) {
+        int first = index >>> 6;
+        long below = (1L << index) - 1;
+        done[first] = (done[first] & below) | ((done[first] >>> 1) & ~below);
+        for (int w = first + 1; w <= (size - 1) >>> 6; w++) {
+            done[w - 1] |= done[w] << 63;
+            done[w] >>>= 1;
+        }
+    }
+
+    /**
+     * Returns the description of the task at the given index.
+     */
+    String descriptionAt(int index) {
+        return descriptions[index];
+    }
+
+    /**
+     * Returns the {@link Task#getSortMinute()} of the task at the given
+     * index.
+     */
+    long sortMinuteAt(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Reorders the tasks so that the task at {@code order[i]} moves to index
+     * {@code i}, moving whole columns at a time.
+     *
+     * @param order a permutation of the indexes
+     */
+    void permute(int[] order) {
+        assert order.length == size : "Permutation must cover every task";
+        byte[] newTypes = new byte[types.length];
+        long[] newStarts = new long[starts.length];
+        long[] newEnds = new long[ends.length];
+        String[] newDescriptions = new String[descriptions.length];
+        WeakReference<?>[] newViews = new WeakReference<?>[views.length];
+        long[] newDone = new long[done.length];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            newTypes[i] = types[from];
+            newStarts[i] = starts[from];
+            newEnds[i] = ends[from];
+            newDescriptions[i] = descriptions[from];
+            newViews[i] = views[from];
+            if (isDoneAt(from)) {
+                newDone[i >>> 6] |= 1L << i;
+            }
+        }
+        types = newTypes;
+        starts = newStarts;
+        ends = newEnds;
+        descriptions = newDescriptions;
+        views = newViews;
+        done = newDone;
+        modCount++;
+    }
+}
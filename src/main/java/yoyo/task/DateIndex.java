@@ -0,0 +1,110 @@
+package yoyo.task;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import yoyo.util.DateTimeUtil;
+
+/**
+ * Ordered index over the dates tasks are due at: the due time of deadlines
+ * and the start time of events, as returned by
+ * {@link Task#getSortMinute()}. Todos have no date and are left out.
+ *
+ * <p>Only pending tasks are indexed: a task leaves the index when it is
+ * marked done and comes back when it is unmarked. Entries are kept in a
+ * balanced search tree keyed by epoch minute and then by task id, which is
+ * all they hold, so that a task is found again from its date and id alone.
+ * Finding the first entry before or after a time takes O(log n), after which
+ * the entries are walked in date order; tasks that are done, have no date or
+ * are dated elsewhere are never looked at.
+ */
+final class DateIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::minute)
+            .thenComparingInt(Entry::id);
+
+    private final NavigableSet<Entry> entries = new TreeSet<>(ORDER);
+
+    private record Entry(long minute, int id) {
+    }
+
+    /**
+     * Constructs an index over the pending dated tasks among the given tasks.
+     *
+     * @param tasks the tasks to index
+     * @param ids the id of the task at each position, as returned by
+     * {@link IdIndex#inOrder()}
+     */
+    DateIndex(List<Task> tasks, int[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            add(ids[i], tasks.get(i));
+        }
+    }
+
+    /**
+     * Indexes a task, if it has a date and is not done.
+     *
+     * @param id the id of the task
+     * @param task the task
+     */
+    void add(int id, Task task) {
+        long minute = task.getSortMinute();
+        if (minute != Task.NO_DATE && !task.isDone()) {
+            entries.add(new Entry(minute, id));
+        }
+    }
+
+    /**
+     * Drops a task from the index, if it is indexed.
+     *
+     * @param id the id of the task
+     * @param task the removed task
+     */
+    void remove(int id, Task task) {
+        entries.remove(new Entry(task.getSortMinute(), id));
+    }
+
+    /**
+     * Updates the index after a task was marked or unmarked. A task marked
+     * done leaves the index; one unmarked is indexed again.
+     *
+     * @param id the id of the task
+     * @param updated the task with its new status
+     */
+    void statusChanged(int id, Task updated) {
+        remove(id, updated);
+        add(id, updated);
+    }
+
+    /**
+     * Returns the ids of the pending tasks dated strictly before the given
+     * time, earliest first.
+     *
+     * @param time the exclusive upper bound
+     * @return the matching ids
+     */
+    int[] before(LocalDateTime time) {
+        return entries.headSet(bound(time), false).stream().mapToInt(Entry::id).toArray();
+    }
+
+    /**
+     * Returns the ids of up to {@code count} pending tasks dated at or after
+     * the given time, earliest first.
+     *
+     * @param time the inclusive lower bound
+     * @param count the maximum number of tasks to return
+     * @return the matching ids
+     */
+    int[] from(LocalDateTime time, int count) {
+        assert count >= 0 : "Count cannot be negative";
+        return entries.tailSet(bound(time), true).stream().limit(count).mapToInt(Entry::id).toArray();
+    }
+
+    // Sorts before every entry at the same minute
+    private static Entry bound(LocalDateTime time) {
+        return new Entry(DateTimeUtil.toEpochMinutes(time), Integer.MIN_VALUE);
+    }
+}
@@ -7,11 +7,13 @@ import yoyo.util.Constants;
 import yoyo.util.DateTimeUtil;
 
 /**
- * Represents a deadline task with a due date and time.
+ * Represents a deadline task with a due date and time. The time is stored as
+ * whole minutes since the epoch, and only turned into a {@link LocalDateTime}
+ * when asked for.
  */
 public class Deadline extends Task {
 
-    private final LocalDateTime by;
+    private final long byMinute;
 
     // Pretty output like: "Dec 2 2019, 18:00"
     private static final DateTimeFormatter OUTPUT_FORMAT
@@ -24,7 +26,42 @@ public class Deadline extends Task {
     public Deadline(String description, String byRaw) {
         super(TaskType.DEADLINE, description);
         assert byRaw != null && !byRaw.trim().isEmpty() : "Deadline 'by' parameter cannot be null or empty";
-        this.by = DateTimeUtil.parseFlexibleDateTime(byRaw);
+        this.byMinute = DateTimeUtil.toEpochMinutes(DateTimeUtil.parseFlexibleDateTime(byRaw));
+    }
+
+    /**
+     * Constructs a deadline from an already parsed due time.
+     *
+     * @param description the description of the deadline
+     * @param by the due date and time, kept to the minute
+     */
+    public Deadline(String description, LocalDateTime by) {
+        super(TaskType.DEADLINE, description);
+        assert by != null : "Deadline 'by' cannot be null";
+        this.byMinute = DateTimeUtil.toEpochMinutes(by);
+    }
+
+    /**
+     * Constructs a deadline from a due time in minutes since the epoch.
+     *
+     * @param description the description of the deadline
+     * @param byMinute the due time, as returned by {@link #getByMinute()}
+     */
+    public Deadline(String description, long byMinute) {
+        this(description, byMinute, false);
+    }
+
+    /**
+     * Constructs a deadline from a due time in minutes since the epoch and a
+     * done status.
+     *
+     * @param description the description of the deadline
+     * @param byMinute the due time, as returned by {@link #getByMinute()}
+     * @param done whether the deadline is done
+     */
+    public Deadline(String description, long byMinute, boolean done) {
+        super(TaskType.DEADLINE, description, done);
+        this.byMinute = byMinute;
     }
 
     /**
@@ -33,7 +70,31 @@ public class Deadline extends Task {
      * @return the due LocalDateTime
      */
     public LocalDateTime getBy() {
-        return by;
+        return DateTimeUtil.fromEpochMinutes(byMinute);
+    }
+
+    /**
+     * Returns the due time of the deadline in minutes since the epoch.
+     *
+     * @return the due time
+     */
+    public long getByMinute() {
+        return byMinute;
+    }
+
+    /**
+     * Returns the due time, by which deadlines are sorted.
+     *
+     * @return the due LocalDateTime
+     */
+    @Override
+    public LocalDateTime getSortDateTime() {
+        return getBy();
+    }
+
+    @Override
+    long getSortMinute() {
+        return byMinute;
     }
 
     /**
@@ -42,8 +103,8 @@ public class Deadline extends Task {
      * @return the string representation
      */
     @Override
-    public String toString() {
-        return baseString() + " (by: " + by.format(OUTPUT_FORMAT) + ")";
+    protected String render() {
+        return baseString() + " (by: " + getBy().format(OUTPUT_FORMAT) + ")";
     }
 
     /**
@@ -52,11 +113,11 @@ public class Deadline extends Task {
      * @return the serialized string
      */
     @Override
-    public String serialize() {
+    protected String renderSerialized() {
         return String.format("%c | %d | %s | %s",
                 type.code(),
                 isDone() ? 1 : 0, // <- changed from status.flag()
                 description,
-                by.format(STORAGE_FORMAT));
+                getBy().format(STORAGE_FORMAT));
     }
 }
@@ -0,0 +1,199 @@
+package yoyo.task;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Pool of task descriptions, so that tasks with equal descriptions share one
+ * string: recurring chores and templated tasks are then stored only once.
+ * Every task passes its description through the {@link #shared()} pool when
+ * it is constructed, whether it is loaded or added.
+ *
+ * <p>The pool only holds its strings weakly. Once no task uses a description
+ * any more, the garbage collector reclaims it and the pool drops its entry on
+ * a later lookup. Each entry is a single weak reference chained into a hash
+ * table. The table is split into independently locked stripes, so that
+ * loading in parallel does not serialize on one lock.
+ */
+public final class DescriptionPool {
+
+    private static final DescriptionPool SHARED = new DescriptionPool();
+    private static final int STRIPE_BITS = 4;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    /**
+     * How well the pool has deduplicated descriptions so far.
+     *
+     * @param lookups the number of descriptions passed through the pool,
+     * not counting the pooled strings themselves passed through it again
+     * @param hits the number of them that were equal to a pooled string
+     * @param bytesSaved the estimated heap taken by the duplicates that were
+     * dropped in favour of a pooled string
+     * @param size the number of pooled descriptions, including reclaimed ones
+     * not dropped yet
+     */
+    public record Stats(long lookups, long hits, long bytesSaved, int size) {
+
+        /**
+         * Returns the share of lookups that found the description pooled.
+         *
+         * @return the hit rate between 0 and 1, or 0 before any lookup
+         */
+        public double hitRate() {
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d descriptions pooled, %.1f%% of %d lookups hit, about %d KB saved",
+                    size, hitRate() * 100, lookups, bytesSaved / 1024);
+        }
+    }
+
+    /**
+     * Constructs an empty pool.
+     */
+    public DescriptionPool() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the pool all tasks share.
+     *
+     * @return the shared pool
+     */
+    public static DescriptionPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the pooled string equal to the given description, pooling the
+     * description itself if there is none.
+     *
+     * @param description the description
+     * @return an equal string, shared with every other task using it
+     */
+    public String intern(String description) {
+        assert description != null : "Description cannot be null";
+        int hash = spread(description.hashCode());
+        return stripes[hash & (stripes.length - 1)].intern(description, hash >>> STRIPE_BITS);
+    }
+
+    /**
+     * Returns how well the pool has deduplicated descriptions so far.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        long lookups = 0;
+        long hits = 0;
+        long bytesSaved = 0;
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expunge();
+                lookups += stripe.lookups;
+                hits += stripe.hits;
+                bytesSaved += stripe.bytesSaved;
+                size += stripe.size;
+            }
+        }
+        return new Stats(lookups, hits, bytesSaved, size);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // A string object and its byte array, with compact Latin-1 strings where possible
+    private static long sizeOf(String s) {
+        int bytes = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                bytes = 2 * s.length();
+                break;
+            }
+        }
+        return 24 + ((16 + bytes + 7) & ~7);
+    }
+
+    private static final class Entry extends WeakReference<String> {
+        final int hash;
+        Entry next;
+
+        Entry(String description, int hash, Entry next, ReferenceQueue<String> queue) {
+            super(description, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private static final class Stripe {
+        private final ReferenceQueue<String> reclaimed = new ReferenceQueue<>();
+        private Entry[] table = new Entry[16];
+        private int size;
+        // Counted under the stripe's lock, so lookups pay for no atomic updates
+        private long lookups;
+        private long hits;
+        private long bytesSaved;
+
+        synchronized String intern(String description, int hash) {
+            expunge();
+            int bucket = hash & (table.length - 1);
+            for (Entry e = table[bucket]; e != null; e = e.next) {
+                String pooled = e.get();
+                if (pooled == description) {
+                    return pooled; // e.g. a task rebuilt from a column, which saves nothing
+                }
+                if (e.hash == hash && description.equals(pooled)) {
+                    lookups++;
+                    hits++;
+                    bytesSaved += sizeOf(description);
+                    return pooled;
+                }
+            }
+            lookups++;
+            table[bucket] = new Entry(description, hash, table[bucket], reclaimed);
+            if (++size > table.length - (table.length >> 2)) {
+                resize();
+            }
+            return description;
+        }
+
+        private void expunge() {
+            for (Object ref; (ref = reclaimed.poll()) != null;) {
+                Entry dead = (Entry) ref;
+                int bucket = dead.hash & (table.length - 1);
+                Entry previous = null;
+                for (Entry e = table[bucket]; e != null; previous = e, e = e.next) {
+                    if (e == dead) {
+                        if (previous == null) {
+                            table[bucket] = e.next;
+                        } else {
+                            previous.next = e.next;
+                        }
+                        size--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void resize() {
+            Entry[] grown = new Entry[table.length * 2];
+            for (Entry head : table) {
+                for (Entry e = head; e != null;) {
+                    Entry next = e.next;
+                    int bucket = e.hash & (grown.length - 1);
+                    e.next = grown[bucket];
+                    grown[bucket] = e;
+                    e = next;
+                }
+            }
+            table = grown;
+        }
+    }
+}
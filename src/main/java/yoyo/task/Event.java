@@ -7,12 +7,14 @@ import yoyo.util.Constants;
 import yoyo.util.DateTimeUtil;
 
 /**
- * Represents an event task with a start and end time.
+ * Represents an event task with a start and end time. The times are stored
+ * as whole minutes since the epoch, and only turned into
+ * {@link LocalDateTime}s when asked for.
  */
 public class Event extends Task {
 
-    private final LocalDateTime from;
-    private final LocalDateTime to;
+    private final long fromMinute;
+    private final long toMinute;
 
     // Pretty output (e.g., "Dec 2 2019, 14:00")
     private static final DateTimeFormatter OUTPUT_FORMAT
@@ -26,9 +28,55 @@ public class Event extends Task {
         super(TaskType.EVENT, description);
         assert fromRaw != null && !fromRaw.trim().isEmpty() : "Event 'from' parameter cannot be null or empty";
         assert toRaw != null && !toRaw.trim().isEmpty() : "Event 'to' parameter cannot be null or empty";
-        this.from = DateTimeUtil.parseFlexibleDateTime(fromRaw);
-        this.to = DateTimeUtil.parseFlexibleDateTime(toRaw);
-        if (this.to.isBefore(this.from)) {
+        this.fromMinute = DateTimeUtil.toEpochMinutes(DateTimeUtil.parseFlexibleDateTime(fromRaw));
+        this.toMinute = DateTimeUtil.toEpochMinutes(DateTimeUtil.parseFlexibleDateTime(toRaw));
+        checkOrder(fromMinute, toMinute);
+    }
+
+    /**
+     * Constructs an event from already parsed start and end times.
+     *
+     * @param description the description of the event
+     * @param from the start date and time, kept to the minute
+     * @param to the end date and time, kept to the minute
+     */
+    public Event(String description, LocalDateTime from, LocalDateTime to) {
+        super(TaskType.EVENT, description);
+        assert from != null && to != null : "Event times cannot be null";
+        this.fromMinute = DateTimeUtil.toEpochMinutes(from);
+        this.toMinute = DateTimeUtil.toEpochMinutes(to);
+        checkOrder(fromMinute, toMinute);
+    }
+
+    /**
+     * Constructs an event from start and end times in minutes since the epoch.
+     *
+     * @param description the description of the event
+     * @param fromMinute the start time, as returned by {@link #getFromMinute()}
+     * @param toMinute the end time, as returned by {@link #getToMinute()}
+     */
+    public Event(String description, long fromMinute, long toMinute) {
+        this(description, fromMinute, toMinute, false);
+    }
+
+    /**
+     * Constructs an event from start and end times in minutes since the epoch
+     * and a done status.
+     *
+     * @param description the description of the event
+     * @param fromMinute the start time, as returned by {@link #getFromMinute()}
+     * @param toMinute the end time, as returned by {@link #getToMinute()}
+     * @param done whether the event is done
+     */
+    public Event(String description, long fromMinute, long toMinute, boolean done) {
+        super(TaskType.EVENT, description, done);
+        checkOrder(fromMinute, toMinute);
+        this.fromMinute = fromMinute;
+        this.toMinute = toMinute;
+    }
+
+    private static void checkOrder(long fromMinute, long toMinute) {
+        if (toMinute < fromMinute) {
             throw new IllegalArgumentException("Event end time must be after start time.");
         }
     }
@@ -39,7 +87,7 @@ public class Event extends Task {
      * @return the start LocalDateTime
      */
     public LocalDateTime getFrom() {
-        return from;
+        return DateTimeUtil.fromEpochMinutes(fromMinute);
     }
 
     /**
@@ -48,7 +96,40 @@ public class Event extends Task {
      * @return the end LocalDateTime
      */
     public LocalDateTime getTo() {
-        return to;
+        return DateTimeUtil.fromEpochMinutes(toMinute);
+    }
+
+    /**
+     * Returns the start time of the event in minutes since the epoch.
+     *
+     * @return the start time
+     */
+    public long getFromMinute() {
+        return fromMinute;
+    }
+
+    /**
+     * Returns the end time of the event in minutes since the epoch.
+     *
+     * @return the end time
+     */
+    public long getToMinute() {
+        return toMinute;
+    }
+
+    /**
+     * Returns the start time, by which events are sorted.
+     *
+     * @return the start LocalDateTime
+     */
+    @Override
+    public LocalDateTime getSortDateTime() {
+        return getFrom();
+    }
+
+    @Override
+    long getSortMinute() {
+        return fromMinute;
     }
 
     /**
@@ -57,9 +138,9 @@ public class Event extends Task {
      * @return the string representation
      */
     @Override
-    public String toString() {
-        return baseString() + " (from: " + from.format(OUTPUT_FORMAT)
-                + " to: " + to.format(OUTPUT_FORMAT) + ")";
+    protected String render() {
+        return baseString() + " (from: " + getFrom().format(OUTPUT_FORMAT)
+                + " to: " + getTo().format(OUTPUT_FORMAT) + ")";
     }
 
     /**
@@ -68,13 +149,13 @@ public class Event extends Task {
      * @return the serialized string
      */
     @Override
-    public String serialize() {
+    protected String renderSerialized() {
         // Pipe format: E | 0/1 | description | yyyy-MM-dd HHmm | yyyy-MM-dd HHmm
         return String.format("%c | %d | %s | %s | %s",
                 type.code(),
                 isDone() ? 1 : 0,
                 description,
-                from.format(STORAGE_FORMAT),
-                to.format(STORAGE_FORMAT));
+                getFrom().format(STORAGE_FORMAT),
+                getTo().format(STORAGE_FORMAT));
     }
 }
@@ -0,0 +1,232 @@
+package yoyo.task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import yoyo.util.DateTimeUtil;
+
+/**
+ * Interval tree over the time ranges of events, answering which events
+ * overlap a time window in O(log n + k) for k results instead of scanning
+ * every task.
+ *
+ * <p>The tree is a treap ordered by start time, where every node also holds
+ * the latest end time in its subtree. A query skips any subtree whose latest
+ * end lies before the window, and everything right of a node that starts
+ * after it. Times are compared as whole minutes, the precision events are
+ * entered and stored with, and ranges include both their start and end.
+ *
+ * <p>Nodes hold the task ids and times of the events rather than the events
+ * themselves. Events starting at the same minute are ordered by id, so a
+ * node is found again from its event's start time and id.
+ */
+final class EventIndex {
+
+    private final Random priorities = new Random();
+    private Node root;
+
+    private static final class Node {
+
+        final int id;
+        final long start;
+        final long end;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(int id, Event event, int priority) {
+            this.id = id;
+            this.start = event.getFromMinute();
+            this.end = event.getToMinute();
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        boolean isBefore(long otherStart, int otherId) {
+            return start != otherStart ? start < otherStart : id < otherId;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+
+    /**
+     * Constructs an index over the events among the given tasks.
+     *
+     * @param tasks the tasks to index
+     * @param ids the id of the task at each position, as returned by
+     * {@link IdIndex#inOrder()}
+     */
+    EventIndex(List<Task> tasks, int[] ids) {
+        List<Node> sorted = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (tasks.get(i) instanceof Event event) {
+                sorted.add(new Node(ids[i], event, priorities.nextInt()));
+            }
+        }
+        sorted.sort(Comparator.<Node>comparingLong(node -> node.start).thenComparingInt(node -> node.id));
+        root = build(sorted);
+    }
+
+    /**
+     * Builds the treap from nodes in key order in linear time, keeping the
+     * right spine on a stack, rather than inserting them one by one.
+     */
+    private static Node build(List<Node> sorted) {
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Node node : sorted) {
+            Node last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+                last.update();
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node root = null;
+        while (!spine.isEmpty()) {
+            root = spine.pop();
+            root.update();
+        }
+        return root;
+    }
+
+    /**
+     * Indexes a task, if it is an event.
+     *
+     * @param id the id of the task
+     * @param task the added task
+     */
+    void add(int id, Task task) {
+        if (task instanceof Event event) {
+            root = insert(root, new Node(id, event, priorities.nextInt()));
+        }
+    }
+
+    /**
+     * Drops a task from the index, if it is an event.
+     *
+     * @param id the id of the task
+     * @param task the removed task
+     */
+    void remove(int id, Task task) {
+        if (task instanceof Event event) {
+            root = delete(root, event.getFromMinute(), id);
+        }
+    }
+
+    /**
+     * Returns the ids of the events whose time range overlaps the given
+     * window, ordered by start time.
+     *
+     * @param from the start of the window
+     * @param to the end of the window, not before {@code from}
+     * @return the ids of the overlapping events
+     */
+    int[] overlapping(LocalDateTime from, LocalDateTime to) {
+        assert !to.isBefore(from) : "Window end cannot be before its start";
+        List<Integer> found = new ArrayList<>();
+        collect(root, DateTimeUtil.toEpochMinutes(from), DateTimeUtil.toEpochMinutes(to), found);
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void collect(Node node, long from, long to, List<Integer> found) {
+        // Nothing below ends late enough to reach the window
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, found);
+        if (node.start > to) {
+            return; // neither this node nor any to its right starts in time
+        }
+        if (node.end >= from) {
+            found.add(node.id);
+        }
+        collect(node.right, from, to, found);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.isBefore(node.start, node.id)) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, long start, int id) {
+        assert node != null : "Removed node must be in the tree";
+        if (node.id == id) {
+            return merge(node.left, node.right);
+        }
+        if (node.isBefore(start, id)) {
+            node.right = delete(node.right, start, id);
+        } else {
+            node.left = delete(node.left, start, id);
+        }
+        node.update();
+        return node;
+    }
+
+    // Joins two treaps where every node of the left one comes first
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+}
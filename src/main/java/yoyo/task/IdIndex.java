@@ -0,0 +1,226 @@
+package yoyo.task;
+
+import java.util.Arrays;
+
+/**
+ * Stable ids for the tasks of a list. Unlike positions, an id keeps referring
+ * to the same task when tasks before it are removed or the list is sorted.
+ * The other indexes of a {@link TaskList} identify tasks by these ids, so
+ * that none of them holds on to a task object.
+ *
+ * <p>The index knows tasks only by position: it is told where tasks were
+ * added and removed, and how the list was reordered. Tasks are numbered by
+ * slots that ascend in list order, and ids map to slots through a plain
+ * array. A Fenwick tree counts the live slots, so the position of an id and
+ * the id at a position are both found in O(log n). Appending and removing
+ * tasks keeps the slots in list order; inserting a task before others, which
+ * is what adding into a kept sort order does, or reordering the list
+ * renumbers every slot in O(n), as the list itself moves every task then.
+ * Removing the task a lookup finds still shifts every later task in the
+ * list's array, so deleting by id costs O(n) like deleting by position.
+ * Removed tasks leave an empty slot behind until half of the slots are empty,
+ * when the slots are renumbered too. Ids never change.
+ */
+final class IdIndex {
+
+    private static final int NO_SLOT = -1;
+
+    // Indexed by id; NO_SLOT once the task was removed
+    private int[] slotOfId = new int[16];
+    private int[] idOfSlot = new int[16];
+    // 1-based Fenwick tree over the slots, counting those still in use
+    private int[] tree = new int[17];
+    private int slotCount;
+    private int live;
+    private int nextId = 1;
+
+    /**
+     * Constructs an index that numbers the tasks of a list in order.
+     *
+     * @param size the number of tasks in the list
+     */
+    IdIndex(int size) {
+        for (int i = 0; i < size; i++) {
+            add(i + 1);
+        }
+    }
+
+    /**
+     * Gives a task added at the given position the next id.
+     *
+     * @param idx1Based the 1-based position of the added task
+     * @return the id of the added task
+     */
+    int add(int idx1Based) {
+        assert idx1Based >= 1 && idx1Based <= live + 1 : "Position out of range: " + idx1Based;
+        int id = nextId++;
+        if (id == slotOfId.length) {
+            slotOfId = Arrays.copyOf(slotOfId, id * 2);
+        }
+        if (idx1Based == live + 1) {
+            append(id);
+            return id;
+        }
+        int[] order = inOrder();
+        slotCount = 0;
+        live = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == idx1Based - 1) {
+                append(id);
+            }
+            append(order[i]);
+        }
+        return id;
+    }
+
+    /**
+     * Drops the task that was at the given position.
+     *
+     * @param idx1Based the 1-based position the task was removed from
+     * @return the id of the removed task
+     */
+    int remove(int idx1Based) {
+        int id = drop(slotAt(idx1Based));
+        compactIfSparse();
+        return id;
+    }
+
+    /**
+     * Drops the tasks that were at the given positions.
+     *
+     * @param idx1Based the distinct 1-based positions, in ascending order, as
+     * they were before the removal
+     * @return the ids of the removed tasks, in the same order
+     */
+    int[] removeAll(int[] idx1Based) {
+        // Every slot is found before any is dropped, while the positions still hold
+        int[] slots = new int[idx1Based.length];
+        for (int i = 0; i < idx1Based.length; i++) {
+            slots[i] = slotAt(idx1Based[i]);
+        }
+        int[] ids = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            ids[i] = drop(slots[i]);
+        }
+        compactIfSparse();
+        return ids;
+    }
+
+    private int drop(int slot) {
+        int id = idOfSlot[slot];
+        slotOfId[id] = NO_SLOT;
+        for (int i = slot + 1; i <= slotCount; i += i & -i) {
+            tree[i]--;
+        }
+        live--;
+        return id;
+    }
+
+    private void compactIfSparse() {
+        if (live < slotCount / 2) {
+            reorder(null);
+        }
+    }
+
+    /**
+     * Renumbers the slots after the list was reordered, keeping the ids.
+     *
+     * @param order the reordering, where the task now at 0-based position
+     * {@code i} was at {@code order[i]} before; null if the order is unchanged
+     */
+    void reorder(int[] order) {
+        int[] ids = inOrder();
+        assert order == null || order.length == ids.length : "Reordering must cover every task";
+        slotCount = 0;
+        live = 0;
+        for (int i = 0; i < ids.length; i++) {
+            append(ids[order == null ? i : order[i]]);
+        }
+    }
+
+    /**
+     * Returns the ids of the tasks in list order.
+     *
+     * @return the id of the task at each 0-based position
+     */
+    int[] inOrder() {
+        int[] ids = new int[live];
+        int n = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int id = idOfSlot[slot];
+            if (slotOfId[id] == slot) {
+                ids[n++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the id of the task at the given position.
+     *
+     * @param idx1Based the 1-based position
+     * @return the id of the task there
+     */
+    int idAt(int idx1Based) {
+        return idOfSlot[slotAt(idx1Based)];
+    }
+
+    /**
+     * Returns the current position of the task with the given id.
+     *
+     * @param id the task id
+     * @return the 1-based position, or -1 if no task has that id
+     */
+    int positionOf(int id) {
+        if (id <= 0 || id >= nextId || slotOfId[id] == NO_SLOT) {
+            return -1;
+        }
+        int position = 0;
+        for (int i = slotOfId[id] + 1; i > 0; i -= i & -i) {
+            position += tree[i];
+        }
+        return position;
+    }
+
+    /**
+     * Returns an exclusive upper bound of the ids handed out so far.
+     *
+     * @return one more than the highest id
+     */
+    int idLimit() {
+        return nextId;
+    }
+
+    private void append(int id) {
+        int slot = slotCount++;
+        if (slotCount == idOfSlot.length) {
+            idOfSlot = Arrays.copyOf(idOfSlot, slotCount * 2);
+            tree = Arrays.copyOf(tree, slotCount * 2 + 1);
+        }
+        idOfSlot[slot] = id;
+        slotOfId[id] = slot;
+
+        // A node covers the slots (i - lowbit(i), i]: this one plus the nodes below it
+        int i = slot + 1;
+        int count = 1;
+        for (int j = i - 1; j > i - (i & -i); j -= j & -j) {
+            count += tree[j];
+        }
+        tree[i] = count;
+        live++;
+    }
+
+    // Walks down the Fenwick tree to the slot holding the k-th live task
+    private int slotAt(int idx1Based) {
+        assert idx1Based >= 1 && idx1Based <= live : "Position out of range: " + idx1Based;
+        int slot = 0;
+        int remaining = idx1Based;
+        for (int step = Integer.highestOneBit(slotCount); step > 0; step >>= 1) {
+            if (slot + step <= slotCount && tree[slot + step] < remaining) {
+                slot += step;
+                remaining -= tree[slot];
+            }
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,513 @@
+package yoyo.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index over the words of task descriptions, answering the
+ * case-insensitive substring queries of {@link TaskList#find} without
+ * scanning every task.
+ *
+ * <p>Each lowercased description is split into words at whitespace, and every
+ * word maps to a posting list of the tasks containing it. A keyword without
+ * whitespace can only occur inside a single word, so a query looks up the
+ * words containing the keyword and merges their posting lists. Those words are
+ * found through a second, much smaller index from the bigrams and trigrams of
+ * the distinct words to the words holding them. Keywords with whitespace are
+ * split into pieces at it; a match must hold every piece, and is then checked
+ * in full.
+ *
+ * <p>{@link #findSimilar} tolerates typos. A piece allowing {@code k} edits
+ * is cut into {@code k + 1} parts; each edit touches one part at most, so a
+ * word within {@code k} edits contains one of the parts unchanged. Only the
+ * words found for the parts through the gram index, and long enough to hold
+ * the piece less {@code k} characters, are compared with the piece, and the
+ * tasks are ranked by the edits needed.
+ *
+ * <p>Posting lists hold the ids the list's {@link IdIndex} gives the tasks,
+ * not the tasks themselves; matches are looked up in the list by position.
+ * Ids ascend as tasks are added, so posting lists stay sorted by just
+ * appending to them, and sorting or inserting into the list leaves them
+ * untouched. Removed tasks leave their ids behind until the index is
+ * rebuilt, which happens when half of the indexed ids are gone.
+ */
+final class KeywordIndex {
+
+    private static final int GRAM = 3;
+    // Bigrams are indexed as well, so that two-character parts are looked up too
+    private static final int MIN_GRAM = 2;
+
+    private final List<Task> tasks;
+    private final IdIndex ids;
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    // Ids posted since the last rebuild, and how many of them are still in the list
+    private int posted;
+    private int live;
+
+    /**
+     * Builds the index for a task list and keeps a reference to it, for
+     * rebuilding later.
+     *
+     * @param tasks the indexed list, which must report every later change
+     * @param ids the ids of the tasks in the list, kept up to date with it
+     */
+    KeywordIndex(List<Task> tasks, IdIndex ids) {
+        this.tasks = tasks;
+        this.ids = ids;
+        rebuild();
+    }
+
+    /**
+     * Indexes a task added to the list.
+     *
+     * @param id the id of the task, higher than any indexed so far
+     * @param task the added task
+     */
+    void add(int id, Task task) {
+        for (String word : words(task.getDescription().toLowerCase())) {
+            postings.computeIfAbsent(word, w -> {
+                addGrams(w);
+                return new Postings();
+            }).add(id);
+        }
+        posted++;
+        live++;
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task the removed task
+     */
+    void remove(Task task) {
+        forget(task);
+        rebuildIfSparse();
+    }
+
+    /**
+     * Removes several tasks from the index at once.
+     *
+     * @param removed the removed tasks
+     */
+    void removeAll(List<Task> removed) {
+        for (Task task : removed) {
+            forget(task);
+        }
+        rebuildIfSparse();
+    }
+
+    private void forget(Task task) {
+        for (String word : words(task.getDescription().toLowerCase())) {
+            Postings list = postings.get(word);
+            if (list != null && --list.live == 0) {
+                postings.remove(word);
+                removeGrams(word);
+            }
+        }
+        live--;
+    }
+
+    private void rebuildIfSparse() {
+        if (live < posted / 2) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the list.
+     */
+    private void rebuild() {
+        postings.clear();
+        grams.clear();
+        posted = 0;
+        live = 0;
+        int[] order = ids.inOrder();
+        for (int i = 0; i < order.length; i++) {
+            add(order[i], tasks.get(i));
+        }
+        // The list may have been sorted since the ids were handed out
+        for (Postings list : postings.values()) {
+            Arrays.sort(list.ids, 0, list.size);
+        }
+    }
+
+    /**
+     * Finds the tasks whose description contains the keyword, ignoring case.
+     *
+     * @param keyword the keyword, containing at least one non-whitespace
+     * character
+     * @param parallel whether to split the scans over the words and the
+     * candidate tasks across the common fork-join pool
+     * @return the 1-based positions of the matching tasks, ascending
+     */
+    int[] find(String keyword, boolean parallel) {
+        String needle = keyword.toLowerCase();
+        List<String> pieces = words(needle);
+        assert !pieces.isEmpty() : "Keyword must contain a non-whitespace character";
+
+        // Every piece lies within a single word of a matching description
+        int[] hits = null;
+        for (String piece : pieces) {
+            int[] pieceHits = idsContaining(piece, parallel);
+            hits = hits == null ? pieceHits : intersect(hits, pieceHits);
+        }
+        int[] positions = positionsOf(hits);
+
+        boolean exact = pieces.size() == 1 && pieces.get(0).equals(needle);
+        if (exact) {
+            return positions;
+        }
+        // The list is only read here, as its tasks may be decoded on access
+        String[] descriptions = new String[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            descriptions[i] = tasks.get(positions[i] - 1).getDescription();
+        }
+        IntStream candidates = IntStream.range(0, positions.length);
+        if (parallel) {
+            // An ordered stream keeps the positions ascending, as in the sequential one
+            candidates = candidates.parallel();
+        }
+        return candidates.filter(i -> descriptions[i].toLowerCase().contains(needle))
+                .map(i -> positions[i])
+                .toArray();
+    }
+
+    /**
+     * Finds the tasks whose words approximately contain every whitespace-free
+     * piece of the keyword, ignoring case, ranked by similarity. A piece
+     * matches a word if some part of the word is within a few edits of it:
+     * none for pieces of up to 2 characters, 1 for up to 5 and 2 beyond. So
+     * both partial words and typos match.
+     *
+     * @param keyword the keyword, containing at least one non-whitespace
+     * character
+     * @return the 1-based positions of the matching tasks, fewest edits
+     * first, then ascending
+     */
+    int[] findSimilar(String keyword) {
+        List<String> pieces = words(keyword.toLowerCase());
+        assert !pieces.isEmpty() : "Keyword must contain a non-whitespace character";
+
+        // ranked[d] holds the ids of the tasks whose pieces need d edits in total
+        BitSet[] ranked = null;
+        for (String piece : pieces) {
+            BitSet[] pieceRanked = idsByEdits(piece);
+            ranked = ranked == null ? pieceRanked : combine(ranked, pieceRanked);
+        }
+
+        IntStream.Builder found = IntStream.builder();
+        for (BitSet level : ranked) {
+            for (int position : positionsOf(level.stream().toArray())) {
+                found.add(position);
+            }
+        }
+        return found.build().toArray();
+    }
+
+    /**
+     * Returns the ascending positions of the tasks with the given ids, leaving
+     * out the ids of removed tasks.
+     */
+    private int[] positionsOf(int[] hits) {
+        int[] positions = new int[hits.length];
+        int n = 0;
+        for (int id : hits) {
+            int position = ids.positionOf(id);
+            if (position > 0) {
+                positions[n++] = position;
+            }
+        }
+        Arrays.sort(positions, 0, n);
+        return Arrays.copyOf(positions, n);
+    }
+
+    /**
+     * Returns, for each number of edits, the ids of the tasks having a word
+     * that contains the piece with exactly that many edits and no fewer.
+     */
+    private BitSet[] idsByEdits(String piece) {
+        int maxEdits = maxEdits(piece);
+        BitSet[] levels = new BitSet[maxEdits + 1];
+        for (int d = 0; d <= maxEdits; d++) {
+            levels[d] = new BitSet(ids.idLimit());
+        }
+        similarWords(piece, maxEdits).forEach((word, distance) -> {
+            Postings list = postings.get(word);
+            for (int i = 0; i < list.size; i++) {
+                levels[distance].set(list.ids[i]);
+            }
+        });
+
+        // A task with several similar words counts with its closest one
+        BitSet closer = (BitSet) levels[0].clone();
+        for (int d = 1; d <= maxEdits; d++) {
+            levels[d].andNot(closer);
+            closer.or(levels[d]);
+        }
+        return levels;
+    }
+
+    /**
+     * Combines the edit levels of two pieces, keeping only the ids that
+     * match both and adding up their edits.
+     */
+    private static BitSet[] combine(BitSet[] a, BitSet[] b) {
+        BitSet[] sum = new BitSet[a.length + b.length - 1];
+        for (int d = 0; d < sum.length; d++) {
+            sum[d] = new BitSet();
+        }
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                BitSet both = (BitSet) a[i].clone();
+                both.and(b[j]);
+                sum[i + j].or(both);
+            }
+        }
+        return sum;
+    }
+
+    private static int maxEdits(String piece) {
+        return piece.length() <= 2 ? 0 : piece.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Returns the indexed words that contain the piece with at most
+     * {@code maxEdits} edits, each with its fewest edits.
+     */
+    private Map<String, Integer> similarWords(String piece, int maxEdits) {
+        Map<String, Integer> similar = new HashMap<>();
+        for (String word : fuzzyCandidates(piece, maxEdits)) {
+            int distance = substringDistance(piece, word, maxEdits);
+            if (distance <= maxEdits) {
+                similar.put(word, distance);
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Narrows down the words that may contain the piece within the given
+     * edits: those containing one of {@code maxEdits + 1} parts of the piece
+     * unchanged, and at least as long as the piece less the edits. Parts of
+     * two characters or more are looked up in the gram index; only a
+     * one-character part, left by a three-character piece, takes a pass over
+     * all words.
+     */
+    private Collection<String> fuzzyCandidates(String piece, int maxEdits) {
+        if (maxEdits == 0) {
+            return wordsContaining(piece, false);
+        }
+        int parts = maxEdits + 1;
+        int minLength = piece.length() - maxEdits;
+        Set<String> candidates = new HashSet<>();
+        for (int p = 0; p < parts; p++) {
+            String part = piece.substring(p * piece.length() / parts, (p + 1) * piece.length() / parts);
+            for (String word : wordsContaining(part, false)) {
+                if (word.length() >= minLength) {
+                    candidates.add(word);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Computes the fewest edits (insertions, deletions, substitutions) that
+     * turn the piece into some substring of the word, giving up once that
+     * exceeds {@code limit}.
+     *
+     * @return the number of edits, or {@code limit + 1} if it exceeds the limit
+     */
+    private static int substringDistance(String piece, String word, int limit) {
+        // Row i holds the edits to match piece[0, i) ending at each word position;
+        // row 0 is all zeros since the match may start anywhere in the word
+        int[] previous = new int[word.length() + 1];
+        int[] current = new int[word.length() + 1];
+        for (int i = 1; i <= piece.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= word.length(); j++) {
+                int substitute = previous[j - 1] + (piece.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = limit + 1;
+        for (int distance : previous) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the ascending, distinct ids of the tasks having a word that
+     * contains the piece.
+     */
+    private int[] idsContaining(String piece, boolean parallel) {
+        List<Postings> lists = new ArrayList<>();
+        int total = 0;
+        for (String word : wordsContaining(piece, parallel)) {
+            Postings list = postings.get(word);
+            lists.add(list);
+            total += list.size;
+        }
+
+        if (total > ids.idLimit() / Integer.SIZE) {
+            // Many hits: a bitmap sorts and deduplicates them in linear time
+            BitSet bits = new BitSet(ids.idLimit());
+            for (Postings list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    bits.set(list.ids[i]);
+                }
+            }
+            return bits.stream().toArray();
+        }
+
+        int[] merged = new int[total];
+        int n = 0;
+        for (Postings list : lists) {
+            System.arraycopy(list.ids, 0, merged, n, list.size);
+            n += list.size;
+        }
+        Arrays.sort(merged);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || merged[i] != merged[distinct - 1]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, n);
+    }
+
+    private Collection<String> wordsContaining(String piece, boolean parallel) {
+        if (piece.length() < MIN_GRAM) {
+            return wordsContaining(piece, postings.keySet(), parallel);
+        }
+
+        // Every word containing the piece holds all of its grams; start from the rarest
+        int gram = Math.min(GRAM, piece.length());
+        Set<String> rarest = null;
+        for (int i = 0; i + gram <= piece.length(); i++) {
+            Set<String> words = grams.get(piece.substring(i, i + gram));
+            if (words == null) {
+                return List.of();
+            }
+            if (rarest == null || words.size() < rarest.size()) {
+                rarest = words;
+            }
+        }
+        if (piece.length() == gram) {
+            return rarest;
+        }
+        return wordsContaining(piece, rarest, parallel);
+    }
+
+    private static List<String> wordsContaining(String piece, Set<String> candidates, boolean parallel) {
+        if (parallel) {
+            // The ids are merged and sorted afterwards, so the word order does not matter
+            return candidates.parallelStream()
+                    .filter(word -> word.contains(piece))
+                    .collect(Collectors.toList());
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : candidates) {
+            if (word.contains(piece)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private void addGrams(String word) {
+        for (int n = MIN_GRAM; n <= GRAM; n++) {
+            for (int i = 0; i + n <= word.length(); i++) {
+                grams.computeIfAbsent(word.substring(i, i + n), g -> new HashSet<>()).add(word);
+            }
+        }
+    }
+
+    private void removeGrams(String word) {
+        for (int n = MIN_GRAM; n <= GRAM; n++) {
+            for (int i = 0; i + n <= word.length(); i++) {
+                String gram = word.substring(i, i + n);
+                Set<String> words = grams.get(gram);
+                if (words != null && words.remove(word) && words.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits lowercased text into its distinct whitespace-separated words.
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean boundary = i == text.length() || Character.isWhitespace(text.charAt(i));
+            if (boundary && start >= 0) {
+                String word = text.substring(start, i);
+                if (!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            } else if (!boundary && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Ascending ids of the tasks containing one word, including ids of tasks
+     * removed since the last rebuild.
+     */
+    private static final class Postings {
+
+        int[] ids = new int[2];
+        int size;
+        int live;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package yoyo.task;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import yoyo.util.Constants;
+
+/**
+ * An ordering of tasks by one or more criteria, e.g. by type and then by
+ * date. Sorting first computes the keys of every task once, as primitives
+ * and case-folded strings, so comparisons never look at the tasks themselves.
+ */
+public final class SortOrder {
+
+    /**
+     * A criterion tasks can be sorted by.
+     */
+    public enum Criterion {
+        /**
+         * The due date of deadlines and the start of events; todos come last.
+         */
+        DATE(Constants.SORT_BY_DATE),
+        /**
+         * The description, ignoring case.
+         */
+        DESCRIPTION(Constants.SORT_BY_DESCRIPTION),
+        /**
+         * Pending tasks before done ones.
+         */
+        STATUS(Constants.SORT_BY_STATUS),
+        /**
+         * Todos, then deadlines, then events.
+         */
+        TYPE(Constants.SORT_BY_TYPE);
+
+        private final String name;
+
+        Criterion(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the criterion with the given name, ignoring case.
+         *
+         * @param name the name used in the sort command
+         * @return the criterion
+         * @throws IllegalArgumentException if no criterion has that name
+         */
+        public static Criterion of(String name) {
+            for (Criterion criterion : values()) {
+                if (criterion.name.equalsIgnoreCase(name.trim())) {
+                    return criterion;
+                }
+            }
+            throw new IllegalArgumentException("Invalid sort criteria: " + name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Criterion[] criteria;
+    private final boolean ascending;
+    // The position of each criterion's key in Keys.numbers, or -1 for the text
+    private final int[] slot;
+
+    /**
+     * Constructs an ordering by the given criteria, each deciding only between
+     * tasks that all earlier criteria consider equal.
+     *
+     * @param criteria the criteria, most significant first
+     * @param ascending true for ascending order, false for descending
+     */
+    public SortOrder(List<Criterion> criteria, boolean ascending) {
+        assert criteria != null && !criteria.isEmpty() : "Sort criteria cannot be null or empty";
+        this.criteria = criteria.toArray(new Criterion[0]);
+        this.ascending = ascending;
+        this.slot = new int[this.criteria.length];
+        int numbers = 0;
+        for (int i = 0; i < this.criteria.length; i++) {
+            slot[i] = this.criteria[i] == Criterion.DESCRIPTION ? -1 : numbers++;
+        }
+    }
+
+    /**
+     * Parses comma-separated criteria, e.g. "type,date".
+     *
+     * @param criteria the criteria names, most significant first
+     * @param ascending true for ascending order, false for descending
+     * @return the ordering
+     * @throws IllegalArgumentException if a criterion is unknown
+     */
+    public static SortOrder parse(String criteria, boolean ascending) {
+        assert criteria != null && !criteria.trim().isEmpty() : "Sort criteria cannot be null or empty";
+        return new SortOrder(Arrays.stream(criteria.split(","))
+                .map(Criterion::of)
+                .collect(Collectors.toList()), ascending);
+    }
+
+    /**
+     * Checks whether marking or unmarking a task can change its place.
+     *
+     * @return true if the ordering looks at the done status
+     */
+    public boolean dependsOnStatus() {
+        return Arrays.asList(criteria).contains(Criterion.STATUS);
+    }
+
+    /**
+     * Sorts the tasks in place. The sort is stable, so tasks with equal keys
+     * keep their relative order, and the parallel sort gives the same result
+     * as the sequential one. A {@link ColumnarTaskList} is sorted from its
+     * columns, without materializing its tasks.
+     *
+     * @param tasks the tasks to sort
+     * @param parallel whether to compute the keys and merge sort them across
+     * the common fork-join pool
+     * @return the reordering, where the task now at 0-based position {@code i}
+     * was at {@code order[i]} before
+     */
+    int[] sort(List<Task> tasks, boolean parallel) {
+        Keys[] keys = new Keys[tasks.size()];
+        ColumnarTaskList columns = tasks instanceof ColumnarTaskList c ? c : null;
+        Task[] all = columns == null ? tasks.toArray(new Task[0]) : null;
+        IntFunction<Keys> keysAt = columns != null
+                ? row -> keysOf(columns, row)
+                : row -> keysOf(all[row], row);
+        if (parallel) {
+            // Only the keys are computed concurrently; the list itself is read and written here
+            IntStream.range(0, keys.length).parallel().forEach(i -> keys[i] = keysAt.apply(i));
+            Arrays.parallelSort(keys, comparator());
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keysAt.apply(i);
+            }
+            Arrays.sort(keys, comparator());
+        }
+
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = keys[i].row;
+        }
+        if (columns != null) {
+            columns.permute(order);
+        } else {
+            for (int i = 0; i < order.length; i++) {
+                tasks.set(i, all[order[i]]);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns where a task belongs in a list sorted by this ordering: after
+     * every task that does not come after it, as if it had been appended and
+     * the list sorted again. Only O(log n) tasks have their keys computed.
+     *
+     * @param tasks the tasks, sorted by this ordering
+     * @param task the task to place
+     * @return the 0-based index to insert the task at
+     */
+    int insertionPoint(List<Task> tasks, Task task) {
+        Comparator<Keys> order = comparator();
+        ColumnarTaskList columns = tasks instanceof ColumnarTaskList c ? c : null;
+        Keys added = keysOf(task, -1);
+        int low = 0;
+        int high = tasks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Keys keys = columns != null ? keysOf(columns, mid) : keysOf(tasks.get(mid), mid);
+            if (order.compare(keys, added) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Comparator<Keys> comparator() {
+        return (a, b) -> {
+            for (int i = 0; i < criteria.length; i++) {
+                int result = slot[i] < 0
+                        ? a.text.compareTo(b.text)
+                        : Long.compare(a.numbers[slot[i]], b.numbers[slot[i]]);
+                if (result != 0) {
+                    return ascending ? result : -result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private Keys keysOf(Task task, int row) {
+        long[] numbers = new long[criteria.length];
+        String text = null;
+        for (int i = 0; i < criteria.length; i++) {
+            switch (criteria[i]) {
+                case DATE -> numbers[slot[i]] = task.getSortMinute();
+                case DESCRIPTION -> text = foldCase(task.getDescription());
+                case STATUS -> numbers[slot[i]] = task.isDone() ? 1 : 0;
+                case TYPE -> numbers[slot[i]] = task.getType().ordinal();
+                default -> throw new AssertionError("Unknown criterion: " + criteria[i]);
+            }
+        }
+        return new Keys(row, numbers, text);
+    }
+
+    // The same keys as above, read from the columns
+    private Keys keysOf(ColumnarTaskList columns, int row) {
+        long[] numbers = new long[criteria.length];
+        String text = null;
+        for (int i = 0; i < criteria.length; i++) {
+            switch (criteria[i]) {
+                case DATE -> numbers[slot[i]] = columns.sortMinuteAt(row);
+                case DESCRIPTION -> text = foldCase(columns.descriptionAt(row));
+                case STATUS -> numbers[slot[i]] = columns.isDoneAt(row) ? 1 : 0;
+                case TYPE -> numbers[slot[i]] = columns.typeAt(row).ordinal();
+                default -> throw new AssertionError("Unknown criterion: " + criteria[i]);
+            }
+        }
+        return new Keys(row, numbers, text);
+    }
+
+    /**
+     * Folds each character the way {@link String#compareToIgnoreCase} does,
+     * so that comparing the results with {@code compareTo} orders them the
+     * same way (apart from characters outside the Basic Multilingual Plane).
+     */
+    private static String foldCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    // The row is the index of the task the keys were computed for
+    private record Keys(int row, long[] numbers, String text) {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SortOrder other && ascending == other.ascending
+                && Arrays.equals(criteria, other.criteria);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(criteria) + Boolean.hashCode(ascending);
+    }
+
+    /**
+     * Returns the ordering as written in the sort command, e.g.
+     * "type,date desc".
+     *
+     * @return the ordering
+     */
+    @Override
+    public String toString() {
+        return Arrays.stream(criteria).map(Criterion::toString).collect(Collectors.joining(","))
+                + (ascending ? " asc" : " desc");
+    }
+}
@@ -1,5 +1,9 @@
 package yoyo.task;
 
+import java.nio.charset.StandardCharsets;
+
+import yoyo.util.Constants;
+
 /**
  * Represents the completion status of a task.
  */
@@ -49,74 +53,122 @@ enum Status {
 }
 
 /**
- * Represents the type of a task.
+ * Abstract base class for all task types. Provides common functionality for
+ * tasks such as the done status and serialization.
+ *
+ * <p>Tasks are not modified once constructed: marking one replaces it with an
+ * updated copy from {@link #withDone(boolean)}, so that snapshots of a
+ * {@link TaskList} taken earlier keep seeing the old status.
+ *
+ * <p>{@link #toString()} and {@link #serialize()} render a task once and then
+ * return the same string. A copy with another status splices the new status
+ * into the renderings it inherits instead of discarding them; dates are never
+ * formatted again.
  */
-enum TaskType {
-    /**
-     * Todo task type.
-     */
-    TODO('T'),
-    /**
-     * Deadline task type.
-     */
-    DEADLINE('D'),
-    /**
-     * Event task type.
-     */
-    EVENT('E');
-
-    private final char code;
-
-    TaskType(char code) {
-        this.code = code;
-    }
+public abstract class Task implements Cloneable {
 
     /**
-     * Returns the code representing this task type.
-     *
-     * @return the task type code
+     * The {@link #getSortMinute()} of tasks without a date, after every real
+     * date.
      */
-    public char code() {
-        return code;
-    }
-}
+    static final long NO_DATE = Long.MAX_VALUE;
 
-/**
- * Abstract base class for all task types. Provides common functionality for
- * tasks such as marking done/undone and serialization.
- */
-public abstract class Task {
+    // Where the status sits in both renderings, "[T][X] ..." and "T | 1 | ..."
+    private static final int STATUS_INDEX = 4;
 
     protected final TaskType type;
     protected final String description;
     protected Status status;
+    // Rendered on first use, then kept up to date by setStatus
+    private String rendered;
+    private String serialized;
 
     /**
-     * Constructs a new Task with the given type and description.
+     * Constructs a new Task with the given type and description. Equal
+     * descriptions are shared through the {@link DescriptionPool}.
      *
      * @param type the type of the task
      * @param description the description of the task
+     * @throws IllegalArgumentException if the description is longer than
+     * {@link Constants#MAX_DESCRIPTION_BYTES}
      */
     protected Task(TaskType type, String description) {
+        this(type, description, false);
+    }
+
+    /**
+     * Constructs a new Task with the given type, description and done
+     * status, for tasks that are read back from storage.
+     *
+     * @param type the type of the task
+     * @param description the description of the task
+     * @param done whether the task is done
+     * @throws IllegalArgumentException if the description is longer than
+     * {@link Constants#MAX_DESCRIPTION_BYTES}
+     */
+    protected Task(TaskType type, String description, boolean done) {
         assert type != null : "Task type cannot be null";
         assert description != null && !description.trim().isEmpty() : "Task description cannot be null or empty";
+        if (isTooLong(description)) {
+            throw new IllegalArgumentException(
+                    String.format(Constants.ERR_DESCRIPTION_TOO_LONG, Constants.MAX_DESCRIPTION_BYTES));
+        }
         this.type = type;
-        this.description = description;
-        this.status = Status.NOT_DONE;
+        this.description = DescriptionPool.shared().intern(description);
+        this.status = Status.fromBoolean(done);
     }
 
     /**
-     * Marks the task as done.
+     * Returns whether a description takes more than
+     * {@link Constants#MAX_DESCRIPTION_BYTES} once encoded as UTF-8.
+     *
+     * @param description the description to check
+     * @return true if the description is too long for a task
      */
-    public void markDone() {
-        this.status = Status.DONE;
+    public static boolean isTooLong(String description) {
+        // A char never encodes to more than three bytes
+        if ((long) description.length() * 3 <= Constants.MAX_DESCRIPTION_BYTES) {
+            return false;
+        }
+        return description.getBytes(StandardCharsets.UTF_8).length > Constants.MAX_DESCRIPTION_BYTES;
+    }
+
+    private void setStatus(Status status) {
+        if (this.status == status) {
+            return;
+        }
+        this.status = status;
+        rendered = withStatus(rendered, status.symbol());
+        serialized = withStatus(serialized, status == Status.DONE ? '1' : '0');
+    }
+
+    private static String withStatus(String rendering, char status) {
+        if (rendering == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(rendering);
+        sb.setCharAt(STATUS_INDEX, status);
+        return sb.toString();
     }
 
     /**
-     * Marks the task as not done.
+     * Returns a copy of this task with the given done status, or this task
+     * itself if it already has that status.
+     *
+     * @param done whether the copy is done
+     * @return a task with the given status
      */
-    public void markUndone() {
-        this.status = Status.NOT_DONE;
+    public Task withDone(boolean done) {
+        if (isDone() == done) {
+            return this;
+        }
+        try {
+            Task copy = (Task) clone();
+            copy.setStatus(Status.fromBoolean(done));
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError("Task is Cloneable", e);
+        }
     }
 
     /**
@@ -154,12 +206,17 @@ public abstract class Task {
      * @return the LocalDateTime for sorting, or null if not applicable
      */
     public java.time.LocalDateTime getSortDateTime() {
-        if (this instanceof Deadline) {
-            return ((Deadline) this).getBy();
-        } else if (this instanceof Event) {
-            return ((Event) this).getFrom();
-        }
-        return null; // Todos don't have dates
+        return null; // Todos don't have dates; dated subclasses override this
+    }
+
+    /**
+     * Returns the date of {@link #getSortDateTime()} in minutes since the
+     * epoch, so that it can be compared without creating any objects.
+     *
+     * @return the minute, or {@link #NO_DATE} if the task has no date
+     */
+    long getSortMinute() {
+        return NO_DATE;
     }
 
     /**
@@ -176,7 +233,14 @@ public abstract class Task {
      *
      * @return the serialized string
      */
-    public abstract String serialize();
+    public final String serialize() {
+        String s = serialized;
+        if (s == null) {
+            s = renderSerialized();
+            serialized = s;
+        }
+        return s;
+    }
 
     /**
      * Returns a string representation of the task.
@@ -184,5 +248,27 @@ public abstract class Task {
      * @return the string representation
      */
     @Override
-    public abstract String toString();
+    public final String toString() {
+        String s = rendered;
+        if (s == null) {
+            s = render();
+            rendered = s;
+        }
+        return s;
+    }
+
+    /**
+     * Renders the string representation, starting with {@link #baseString()}.
+     *
+     * @return the string representation
+     */
+    protected abstract String render();
+
+    /**
+     * Renders the task for storage, starting with the type code and the
+     * status as 0 or 1, separated by " | ".
+     *
+     * @return the serialized string
+     */
+    protected abstract String renderSerialized();
 }
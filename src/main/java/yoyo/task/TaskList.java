@@ -1,32 +1,140 @@
 package yoyo.task;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import yoyo.util.Constants;
+
 /**
  * Manages a list of tasks, providing operations to add, remove, mark, and
  * retrieve tasks.
+ *
+ * <p>A TaskList may be shared between threads, e.g. the GUI, a command thread
+ * and a background saver. Every operation synchronizes on the list itself, so
+ * each one takes effect atomically at a single point between its call and its
+ * return: an {@code add}, {@code mark} or {@code remove} is either fully
+ * visible to another operation or not at all, and listeners see the mutations
+ * in that same order. Readers that need many tasks at once should use
+ * {@link #snapshot()}, which is immutable and can be read without holding any
+ * lock. Tasks themselves are never modified once added; marking replaces a
+ * task with an updated copy.
  */
 public class TaskList {
 
+    /**
+     * Receives notifications about mutations of a TaskList, e.g. so that
+     * storage can persist individual changes instead of the whole list.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a task has been added: appended, or inserted at its
+         * place while the list keeps a sort order.
+         *
+         * @param idx1Based the 1-based index of the new task
+         * @param task the added task
+         */
+        default void onAdded(int idx1Based, Task task) {
+        }
+
+        /**
+         * Called after a task has been removed.
+         *
+         * @param idx1Based the 1-based index the task was removed from
+         * @param task the removed task
+         */
+        default void onRemoved(int idx1Based, Task task) {
+        }
+
+        /**
+         * Called after a task has been marked or unmarked.
+         *
+         * @param idx1Based the 1-based index of the task
+         * @param task the updated task
+         */
+        default void onStatusChanged(int idx1Based, Task task) {
+        }
+
+        /**
+         * Called after the order of the tasks changed as a whole (e.g. sort).
+         */
+        default void onReordered() {
+        }
+    }
+
+    /**
+     * A task found by a query, with its position and id at the time of the
+     * query.
+     *
+     * @param position the 1-based index of the task
+     * @param id the stable id of the task
+     * @param task the task
+     */
+    public record Match(int position, int id, Task task) {
+    }
+
     private final List<Task> tasks;
+    private final List<Listener> listeners = new ArrayList<>();
+    // Built by the first find, then kept up to date by add and remove
+    private KeywordIndex index;
+    // Built by the first event query, then kept up to date by add and remove
+    private EventIndex events;
+    // Built by the first date query, then kept up to date by add, remove and mark
+    private DateIndex dates;
+    // Built before any other index, which all identify tasks by these ids
+    private IdIndex ids;
+    // Kept by add after a sort; null while tasks are simply appended
+    private SortOrder order;
+    // The tasks as of the last mutation; null until asked for again
+    private volatile List<Task> snapshot;
+    // Lists of at least this many tasks are sorted and searched in parallel
+    private int parallelThreshold = Integer.getInteger(Constants.PROP_PARALLEL_THRESHOLD,
+            Constants.DEFAULT_PARALLEL_THRESHOLD);
 
     /**
      * Constructs an empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this(new ArrayList<>());
     }
 
     /**
-     * Constructs a TaskList seeded with the given list of tasks.
+     * Constructs a TaskList seeded with a copy of the given tasks.
      *
-     * @param seed the initial list of tasks
+     * @param seed the initial tasks
      */
-    public TaskList(List<Task> seed) {
-        assert seed != null : "Seed list cannot be null";
-        this.tasks = new ArrayList<>(seed);
+    public TaskList(Collection<? extends Task> seed) {
+        this(new ArrayList<>(seed));
+    }
+
+    /**
+     * Returns a TaskList that uses the given list as its backing store without
+     * copying it, e.g. a lazily decoded list from storage. The caller must not
+     * modify the backing list afterwards.
+     *
+     * @param backing the mutable list to adopt
+     * @return a TaskList backed by the given list
+     */
+    public static TaskList backedBy(List<Task> backing) {
+        return new TaskList(backing);
+    }
+
+    private TaskList(List<Task> backing) {
+        assert backing != null : "Backing list cannot be null";
+        this.tasks = backing;
+    }
+
+    /**
+     * Registers a listener to be notified of every mutation of this list.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(Listener listener) {
+        assert listener != null : "Listener cannot be null";
+        listeners.add(listener);
     }
 
     /**
@@ -34,7 +142,7 @@ public class TaskList {
      *
      * @return the size of the task list
      */
-    public int size() {
+    public synchronized int size() {
         return tasks.size();
     }
 
@@ -44,18 +152,36 @@ public class TaskList {
      * @param idx1Based the 1-based index of the task
      * @return the task at the index
      */
-    public Task get(int idx1Based) {
+    public synchronized Task get(int idx1Based) {
         assert idx1Based >= 1 && idx1Based <= tasks.size() : "Index must be between 1 and " + tasks.size() + ", got: " + idx1Based;
         return tasks.get(toZeroBasedIndex(idx1Based));
     }
 
     /**
-     * Adds a task to the list.
+     * Adds a task to the list: at the end, or after a sort at the place the
+     * sort order puts it, found by binary search.
      *
      * @param t the task to add
      */
-    public void add(Task t) {
-        tasks.add(t);
+    public synchronized void add(Task t) {
+        int idx = order == null ? tasks.size() : order.insertionPoint(tasks, t);
+        tasks.add(idx, t);
+        snapshot = null;
+        if (ids != null) {
+            int id = ids.add(idx + 1);
+            if (index != null) {
+                index.add(id, t);
+            }
+            if (events != null) {
+                events.add(id, t);
+            }
+            if (dates != null) {
+                dates.add(id, t);
+            }
+        }
+        for (Listener l : listeners) {
+            l.onAdded(idx + 1, t);
+        }
     }
 
     /**
@@ -64,9 +190,26 @@ public class TaskList {
      * @param idx1Based the 1-based index of the task to remove
      * @return the removed task
      */
-    public Task remove(int idx1Based) {
+    public synchronized Task remove(int idx1Based) {
         assert idx1Based >= 1 && idx1Based <= tasks.size() : "Index must be between 1 and " + tasks.size() + ", got: " + idx1Based;
-        return tasks.remove(toZeroBasedIndex(idx1Based));
+        Task removed = tasks.remove(toZeroBasedIndex(idx1Based));
+        snapshot = null;
+        if (ids != null) {
+            int id = ids.remove(idx1Based);
+            if (index != null) {
+                index.remove(removed);
+            }
+            if (events != null) {
+                events.remove(id, removed);
+            }
+            if (dates != null) {
+                dates.remove(id, removed);
+            }
+        }
+        for (Listener l : listeners) {
+            l.onRemoved(idx1Based, removed);
+        }
+        return removed;
     }
 
     /**
@@ -74,9 +217,8 @@ public class TaskList {
      *
      * @param idx1Based the 1-based index of the task
      */
-    public void mark(int idx1Based) {
-        assert idx1Based >= 1 && idx1Based <= tasks.size() : "Index must be between 1 and " + tasks.size() + ", got: " + idx1Based;
-        get(idx1Based).markDone();
+    public synchronized void mark(int idx1Based) {
+        setDone(idx1Based, true);
     }
 
     /**
@@ -84,13 +226,171 @@ public class TaskList {
      *
      * @param idx1Based the 1-based index of the task
      */
-    public void unmark(int idx1Based) {
+    public synchronized void unmark(int idx1Based) {
+        setDone(idx1Based, false);
+    }
+
+    // Replaces the task with an updated copy, leaving earlier snapshots as they were
+    private boolean setDone(int idx1Based, boolean done) {
+        assert idx1Based >= 1 && idx1Based <= tasks.size() : "Index must be between 1 and " + tasks.size() + ", got: " + idx1Based;
+        Task task = tasks.get(toZeroBasedIndex(idx1Based));
+        Task updated = task.withDone(done);
+        if (updated == task) {
+            return false; // nothing for listeners to write
+        }
+        tasks.set(toZeroBasedIndex(idx1Based), updated);
+        snapshot = null;
+        if (order != null && order.dependsOnStatus()) {
+            order = null; // moving the task would renumber others under the user
+        }
+        if (dates != null) {
+            dates.statusChanged(ids.idAt(idx1Based), updated);
+        }
+        for (Listener l : listeners) {
+            l.onStatusChanged(idx1Based, updated);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the tasks at the specified 1-based indexes in a single pass: the
+     * remaining tasks are each moved once, instead of once for every task
+     * removed before them. Listeners are told about the removals from the
+     * last index to the first, so that each index is still valid when it is
+     * reported.
+     *
+     * @param idx1Based the distinct 1-based indexes, in ascending order
+     * @return the removed tasks, in list order
+     */
+    public synchronized List<Task> removeAll(int[] idx1Based) {
+        assert isAscending(idx1Based) : "Indexes must be distinct, ascending and between 1 and " + tasks.size();
+        if (idx1Based.length == 0) {
+            return List.of();
+        }
+        int size = tasks.size();
+        List<Task> removed = new ArrayList<>(idx1Based.length);
+        int kept = toZeroBasedIndex(idx1Based[0]);
+        int next = 0;
+        for (int i = kept; i < size; i++) {
+            if (next < idx1Based.length && toZeroBasedIndex(idx1Based[next]) == i) {
+                removed.add(tasks.get(i));
+                next++;
+            } else {
+                tasks.set(kept++, tasks.get(i));
+            }
+        }
+        // The tail is cut from the end, so no task moves again
+        for (int i = size - 1; i >= kept; i--) {
+            tasks.remove(i);
+        }
+        snapshot = null;
+        if (ids != null) {
+            int[] removedIds = ids.removeAll(idx1Based);
+            if (index != null) {
+                index.removeAll(removed);
+            }
+            for (int i = 0; i < removedIds.length; i++) {
+                if (events != null) {
+                    events.remove(removedIds[i], removed.get(i));
+                }
+                if (dates != null) {
+                    dates.remove(removedIds[i], removed.get(i));
+                }
+            }
+        }
+        for (int i = removed.size() - 1; i >= 0; i--) {
+            for (Listener l : listeners) {
+                l.onRemoved(idx1Based[i], removed.get(i));
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Marks the tasks at the specified 1-based indexes as done, skipping those
+     * that are done already.
+     *
+     * @param idx1Based the distinct 1-based indexes, in ascending order
+     * @return the tasks that were marked, in list order; empty if all of them
+     * were done already
+     */
+    public synchronized List<Task> markAll(int[] idx1Based) {
+        return setDoneAll(idx1Based, true);
+    }
+
+    /**
+     * Marks the tasks at the specified 1-based indexes as not done, skipping
+     * those that are not done.
+     *
+     * @param idx1Based the distinct 1-based indexes, in ascending order
+     * @return the tasks that were unmarked, in list order; empty if none of
+     * them were done
+     */
+    public synchronized List<Task> unmarkAll(int[] idx1Based) {
+        return setDoneAll(idx1Based, false);
+    }
+
+    private List<Task> setDoneAll(int[] idx1Based, boolean done) {
+        assert isAscending(idx1Based) : "Indexes must be distinct, ascending and between 1 and " + tasks.size();
+        List<Task> updated = new ArrayList<>(idx1Based.length);
+        for (int idx : idx1Based) {
+            if (setDone(idx, done)) {
+                updated.add(tasks.get(toZeroBasedIndex(idx)));
+            }
+        }
+        return updated;
+    }
+
+    private boolean isAscending(int[] idx1Based) {
+        for (int i = 0; i < idx1Based.length; i++) {
+            if (idx1Based[i] < 1 || idx1Based[i] > tasks.size() || i > 0 && idx1Based[i] <= idx1Based[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stable id of the task at the specified 1-based index.
+     * Unlike its position, the id of a task stays the same when other tasks
+     * are removed or the list is sorted. Ids are handed out in list order
+     * when first asked for, and to tasks added later in turn; they last as
+     * long as this TaskList.
+     *
+     * @param idx1Based the 1-based index of the task
+     * @return the id of the task
+     */
+    public synchronized int idAt(int idx1Based) {
         assert idx1Based >= 1 && idx1Based <= tasks.size() : "Index must be between 1 and " + tasks.size() + ", got: " + idx1Based;
-        get(idx1Based).markUndone();
+        return idIndex().idAt(idx1Based);
     }
 
     /**
-     * Returns an unmodifiable view of the task list.
+     * Returns the current 1-based index of the task with the given id. This
+     * takes O(log n); inserting a task before others, e.g. into a kept sort
+     * order, or sorting the list renumbers all ids in O(n) instead. Removing
+     * the task at that index takes O(n) as well, as the tasks after it are
+     * shifted.
+     *
+     * @param id the task id
+     * @return the 1-based index, or -1 if no task in the list has that id
+     */
+    public synchronized int positionOf(int id) {
+        return idIndex().positionOf(id);
+    }
+
+    private IdIndex idIndex() {
+        if (ids == null) {
+            ids = new IdIndex(tasks.size());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns an unmodifiable live view of the task list. It reflects later
+     * mutations, so a thread other than the only one mutating the list must
+     * hold the list's monitor while using it; {@link #snapshot()} needs no
+     * such care.
      *
      * @return the list of tasks
      */
@@ -99,63 +399,207 @@ public class TaskList {
     }
 
     /**
-     * Finds tasks that contain the given keyword in their description.
+     * Returns an immutable snapshot of the tasks, including their done status,
+     * as of the most recent mutation. The snapshot is copied at most once per
+     * mutation and shared by all readers until the next one; reading it takes
+     * no lock, so it never holds up writers. A list backed by a
+     * {@link ColumnarTaskList} copies only the columns, and materializes the
+     * tasks of its snapshot as they are read.
+     *
+     * @return the tasks at this point in time
+     */
+    public List<Task> snapshot() {
+        List<Task> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = tasks instanceof ColumnarTaskList columns ? columns.frozenCopy() : List.copyOf(tasks);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Finds tasks that contain the given keyword in their description,
+     * ignoring case. The first call indexes the words of all descriptions, so
+     * that later calls only look at tasks sharing a word with the keyword.
+     * On lists above the parallel threshold those are checked in parallel.
      *
      * @param keyword the keyword to search for
-     * @return the list of matching tasks
+     * @return the matching tasks, in list order
      */
-    public List<Task> find(String keyword) {
+    public synchronized List<Match> find(String keyword) {
         assert keyword != null && !keyword.trim().isEmpty() : "Search keyword cannot be null or empty";
-        return tasks.stream()
-                .filter(task -> task.getDescription().toLowerCase().contains(keyword.toLowerCase()))
-                .collect(java.util.stream.Collectors.toList());
+        return matchesAt(keywordIndex().find(keyword, isParallel()));
+    }
+
+    /**
+     * Finds tasks whose description approximately contains the given keyword,
+     * ignoring case, so that partial words and typos still match. Every word
+     * of the keyword must be found within a few edits.
+     *
+     * @param keyword the keyword to search for
+     * @return the matching tasks, closest matches first
+     */
+    public synchronized List<Match> findSimilar(String keyword) {
+        assert keyword != null && !keyword.trim().isEmpty() : "Search keyword cannot be null or empty";
+        return matchesAt(keywordIndex().findSimilar(keyword));
+    }
+
+    private KeywordIndex keywordIndex() {
+        if (index == null) {
+            index = new KeywordIndex(tasks, idIndex());
+        }
+        return index;
+    }
+
+    /**
+     * Finds the events taking place at the given time, including events that
+     * start or end exactly then.
+     *
+     * @param time the time to look at
+     * @return the matching events, ordered by start time
+     */
+    public synchronized List<Match> eventsAt(LocalDateTime time) {
+        assert time != null : "Time cannot be null";
+        return eventsBetween(time, time);
+    }
+
+    /**
+     * Finds the events whose time range overlaps the given window. The first
+     * call indexes all events by their time range, so that later calls skip
+     * events that end before or start after the window.
+     *
+     * @param from the start of the window
+     * @param to the end of the window
+     * @return the overlapping events, ordered by start time
+     */
+    public synchronized List<Match> eventsBetween(LocalDateTime from, LocalDateTime to) {
+        assert from != null && to != null : "Window times cannot be null";
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Window end time must be after start time.");
+        }
+        if (events == null) {
+            events = new EventIndex(tasks, idIndex().inOrder());
+        }
+        return matchesOf(events.overlapping(from, to));
+    }
+
+    /**
+     * Finds the pending deadlines and events that are due strictly before the
+     * given time, i.e. deadlines due and events starting before it. The first
+     * date query indexes all tasks by date, so that later ones only walk the
+     * tasks in the requested range.
+     *
+     * @param time the time the tasks must be due before
+     * @return the matching tasks, earliest first
+     */
+    public synchronized List<Match> dueBefore(LocalDateTime time) {
+        assert time != null : "Time cannot be null";
+        return matchesOf(dateIndex().before(time));
+    }
+
+    /**
+     * Finds the next pending deadlines and events that are due at or after
+     * the given time.
+     *
+     * @param time the time to look ahead from
+     * @param count the maximum number of tasks to return
+     * @return the matching tasks, earliest first
+     */
+    public synchronized List<Match> upcoming(LocalDateTime time, int count) {
+        assert time != null : "Time cannot be null";
+        assert count >= 0 : "Count cannot be negative, got: " + count;
+        return matchesOf(dateIndex().from(time, count));
+    }
+
+    private DateIndex dateIndex() {
+        if (dates == null) {
+            dates = new DateIndex(tasks, idIndex().inOrder());
+        }
+        return dates;
+    }
+
+    private List<Match> matchesAt(int[] positions) {
+        List<Match> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            matches.add(new Match(position, ids.idAt(position), tasks.get(toZeroBasedIndex(position))));
+        }
+        return matches;
+    }
+
+    private List<Match> matchesOf(int[] found) {
+        List<Match> matches = new ArrayList<>(found.length);
+        for (int id : found) {
+            int position = ids.positionOf(id);
+            assert position > 0 : "Indexed task must be in the list, id: " + id;
+            matches.add(new Match(position, id, tasks.get(toZeroBasedIndex(position))));
+        }
+        return matches;
     }
 
     /**
      * Sorts the tasks in place based on the specified criteria.
      *
      * @param criteria the sort criteria ("date", "description", "status",
-     * "type")
+     * "type"), or several of them separated by commas, most significant first
      * @param ascending true for ascending order, false for descending
      */
     public void sort(String criteria, boolean ascending) {
         assert criteria != null && !criteria.trim().isEmpty() : "Sort criteria cannot be null or empty";
+        sort(SortOrder.parse(criteria, ascending));
+    }
 
-        tasks.sort((task1, task2) -> {
-            int result = 0;
-
-            switch (criteria.toLowerCase()) {
-                case "date" -> {
-                    java.time.LocalDateTime date1 = task1.getSortDateTime();
-                    java.time.LocalDateTime date2 = task2.getSortDateTime();
-
-                    // Handle null dates (todos) - put them at the end
-                    if (date1 == null && date2 == null) {
-                        result = 0;
-                    } else if (date1 == null) {
-                        result = 1; // task1 (null date) comes after task2
-                    } else if (date2 == null) {
-                        result = -1; // task1 comes before task2 (null date)
-                    } else {
-                        result = date1.compareTo(date2);
-                    }
-                }
-                case "description" -> {
-                    result = task1.getDescription().compareToIgnoreCase(task2.getDescription());
-                }
-                case "status" -> {
-                    result = Boolean.compare(task1.isDone(), task2.isDone());
-                }
-                case "type" -> {
-                    result = task1.getType().compareTo(task2.getType());
-                }
-                default -> {
-                    throw new IllegalArgumentException("Invalid sort criteria: " + criteria);
-                }
-            }
+    /**
+     * Sorts the tasks in place and keeps them in that order: tasks added later
+     * are inserted at their place. The order is kept until a task is marked
+     * or unmarked while it depends on the status. Sorting again by the order
+     * already kept does nothing.
+     *
+     * @param sortOrder the order to sort by
+     */
+    public synchronized void sort(SortOrder sortOrder) {
+        assert sortOrder != null : "Sort order cannot be null";
+        if (sortOrder.equals(order)) {
+            return; // still sorted, since add kept it that way
+        }
+        int[] reordering = sortOrder.sort(tasks, isParallel());
+        order = sortOrder;
+        snapshot = null;
+        if (ids != null) {
+            ids.reorder(reordering);
+        }
+        for (Listener l : listeners) {
+            l.onReordered();
+        }
+    }
+
+    /**
+     * Returns the order the list is kept in.
+     *
+     * @return the order of the last sort, or null if tasks are appended
+     */
+    public synchronized SortOrder getSortOrder() {
+        return order;
+    }
+
+    /**
+     * Sets the size from which sort and find split their work across the
+     * common fork-join pool. Results are the same either way. Defaults to the
+     * {@value Constants#PROP_PARALLEL_THRESHOLD} system property, or
+     * {@value Constants#DEFAULT_PARALLEL_THRESHOLD} tasks.
+     *
+     * @param threshold the minimum number of tasks for parallel work
+     */
+    public synchronized void setParallelThreshold(int threshold) {
+        assert threshold >= 0 : "Parallel threshold cannot be negative, got: " + threshold;
+        parallelThreshold = threshold;
+    }
 
-            return ascending ? result : -result;
-        });
+    private boolean isParallel() {
+        return tasks.size() >= parallelThreshold && Runtime.getRuntime().availableProcessors() > 1;
     }
 
     /**
@@ -0,0 +1,34 @@
+package yoyo.task;
+
+/**
+ * Represents the type of a task.
+ */
+enum TaskType {
+    /**
+     * Todo task type.
+     */
+    TODO('T'),
+    /**
+     * Deadline task type.
+     */
+    DEADLINE('D'),
+    /**
+     * Event task type.
+     */
+    EVENT('E');
+
+    private final char code;
+
+    TaskType(char code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the code representing this task type.
+     *
+     * @return the task type code
+     */
+    public char code() {
+        return code;
+    }
+}
@@ -14,13 +14,23 @@ public class Todo extends Task {
         super(TaskType.TODO, description);
     }
 
+    /**
+     * Constructs a Todo task with the given description and done status.
+     *
+     * @param description the description of the todo task
+     * @param done whether the task is done
+     */
+    public Todo(String description, boolean done) {
+        super(TaskType.TODO, description, done);
+    }
+
     /**
      * Returns a string representation of the todo task.
      *
      * @return the string representation
      */
     @Override
-    public String toString() {
+    protected String render() {
         return baseString();
     }
 
@@ -30,7 +40,7 @@ public class Todo extends Task {
      * @return the serialized string
      */
     @Override
-    public String serialize() {
+    protected String renderSerialized() {
         return String.format("%c | %d | %s", type.code(), isDone() ? 1 : 0, description);
     }
 }
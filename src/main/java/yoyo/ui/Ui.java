@@ -1,22 +1,48 @@
 package yoyo.ui;
 
+import java.io.PrintStream;
+
 import yoyo.task.Task;
+import yoyo.task.TaskList;
 import yoyo.util.Constants;
 
 /**
  * User interface class for the Yoyo application. Handles all input and output
  * operations with the user.
+ *
+ * <p>Every message goes through {@link #showLine()}, {@link #showHelp()} and
+ * {@link #boxed}, so a subclass can render them other than as boxed console
+ * text.
  */
 public class Ui {
 
     private final java.util.Scanner sc = new java.util.Scanner(System.in);
     private static final String LINE = "____________________________________________________________";
+    private final PrintStream out;
+
+    /**
+     * Constructs a UI that writes to standard output.
+     */
+    public Ui() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a UI that writes to the given stream, e.g. one that discards
+     * everything when nobody reads the output.
+     *
+     * @param out the stream to write messages to
+     */
+    public Ui(PrintStream out) {
+        assert out != null : "Output stream cannot be null";
+        this.out = out;
+    }
 
     /**
      * Displays a horizontal line separator.
      */
     public void showLine() {
-        System.out.println(LINE);
+        out.println(LINE);
     }
 
     /**
@@ -42,7 +68,7 @@ public class Ui {
      * Displays the help message with available commands.
      */
     public void showHelp() {
-        System.out.println(Constants.HELP_TEXT);
+        out.println(Constants.HELP_TEXT);
     }
 
     /**
@@ -73,19 +99,22 @@ public class Ui {
     }
 
     /**
-     * Displays the list of tasks that match the search keyword.
+     * Displays the list of tasks that match the search keyword, each with its
+     * task number and its id, which keeps referring to it after the list
+     * changes until Yoyo exits.
      *
-     * @param tasks the list of matching tasks
+     * @param matches the matching tasks
      */
-    public void showFound(java.util.List<Task> tasks) {
-        if (tasks.isEmpty()) {
+    public void showFound(java.util.List<TaskList.Match> matches) {
+        if (matches.isEmpty()) {
             boxed("No matching tasks found.");
             return;
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Here are the matching tasks in your list:\n");
-        for (int i = 0; i < tasks.size(); i++) {
-            sb.append(" ").append(i + 1).append(".").append(tasks.get(i).toString()).append("\n");
+        for (TaskList.Match match : matches) {
+            sb.append(" ").append(match.position()).append(".").append(Constants.TASK_ID_PREFIX).append(match.id())
+                    .append(" ").append(match.task().toString()).append("\n");
         }
         boxed(sb.toString().trim().split("\\R"));
     }
@@ -118,6 +147,17 @@ public class Ui {
         );
     }
 
+    /**
+     * Displays a message when several tasks are removed at once.
+     *
+     * @param removed the removed tasks
+     * @param newSize the new total number of tasks
+     */
+    public void showRemoved(java.util.List<Task> removed, int newSize) {
+        boxed(withTasks("Noted. I've removed these " + removed.size() + " tasks:", removed,
+                "Now you have " + newSize + " tasks in the list."));
+    }
+
     /**
      * Displays a message when a task is marked as done.
      *
@@ -127,6 +167,15 @@ public class Ui {
         boxed("Nice! I've marked this task as done:", "  " + t.toString());
     }
 
+    /**
+     * Displays a message when several tasks are marked as done at once.
+     *
+     * @param marked the marked tasks
+     */
+    public void showMark(java.util.List<Task> marked) {
+        boxed(withTasks("Nice! I've marked these " + marked.size() + " tasks as done:", marked));
+    }
+
     /**
      * Displays a message when a task is unmarked (marked as not done).
      *
@@ -136,6 +185,15 @@ public class Ui {
         boxed("OK, I've marked this task as not done yet:", "  " + t.toString());
     }
 
+    /**
+     * Displays a message when several tasks are unmarked at once.
+     *
+     * @param unmarked the unmarked tasks
+     */
+    public void showUnmark(java.util.List<Task> unmarked) {
+        boxed(withTasks("OK, I've marked these " + unmarked.size() + " tasks as not done yet:", unmarked));
+    }
+
     /**
      * Displays an error message.
      *
@@ -160,16 +218,27 @@ public class Ui {
         }
     }
 
+    // The header, then each task indented, then the footer lines
+    private static String[] withTasks(String header, java.util.List<Task> tasks, String... footer) {
+        String[] lines = new String[1 + tasks.size() + footer.length];
+        lines[0] = header;
+        for (int i = 0; i < tasks.size(); i++) {
+            lines[i + 1] = "  " + tasks.get(i).toString();
+        }
+        System.arraycopy(footer, 0, lines, 1 + tasks.size(), footer.length);
+        return lines;
+    }
+
     /**
      * Displays the given lines in a boxed format with horizontal lines.
      *
      * @param lines the lines to display
      */
-    private void boxed(String... lines) {
-        System.out.println(LINE);
+    protected void boxed(String... lines) {
+        out.println(LINE);
         for (String line : lines) {
-            System.out.println(" " + line);
+            out.println(" " + line);
         }
-        System.out.println(LINE);
+        out.println(LINE);
     }
 }
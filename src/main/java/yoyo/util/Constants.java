@@ -17,6 +17,10 @@ public final class Constants {
     public static final String CMD_DELETE = "delete";
     public static final String CMD_FIND = "find";
     public static final String CMD_SORT = "sort";
+    public static final String CMD_ON = "on";
+    public static final String CMD_DUE = "due";
+    public static final String CMD_UPCOMING = "upcoming";
+    public static final String CMD_OVERDUE = "overdue";
     public static final String CMD_BYE = "bye";
     public static final String CMD_EXIT = "exit";
     public static final String CMD_QUIT = "quit";
@@ -36,28 +40,52 @@ public final class Constants {
     public static final String ERR_TODO_NEEDS_DESC = "A todo needs a description.\nHint: todo <description>";
     public static final String ERR_DEADLINE_USAGE = "Usage: deadline <description> /by <yyyy-MM-dd>";
     public static final String ERR_EVENT_USAGE = "Usage: event <description> /from <yyyy-MM-dd HHmm> /to <yyyy-MM-dd HHmm>";
-    public static final String ERR_MARK_USAGE = "Usage: mark <taskNumber>";
-    public static final String ERR_UNMARK_USAGE = "Usage: unmark <taskNumber>";
-    public static final String ERR_DELETE_USAGE = "Usage: delete <taskNumber>";
+    public static final String ERR_MARK_USAGE = "Usage: mark <taskNumber>[,<from>-<to>...]";
+    public static final String ERR_UNMARK_USAGE = "Usage: unmark <taskNumber>[,<from>-<to>...]";
+    public static final String ERR_DELETE_USAGE = "Usage: delete <taskNumber>[,<from>-<to>...]";
+    public static final String ERR_DESCRIPTION_TOO_LONG = "A description can be at most %d bytes long.";
     public static final String ERR_FIND_NEEDS_KEYWORD = "Please provide a keyword to search.\nHint: find <keyword>";
-    public static final String ERR_SORT_USAGE = "Usage: sort <criteria> [asc|desc]\nCriteria: date, description, status, type\nExample: sort date asc";
+    public static final String FIND_SIMILAR_PREFIX = "~";
+    public static final String ERR_ON_USAGE = "Usage: on <yyyy-MM-dd HHmm> [/to <yyyy-MM-dd HHmm>]";
+    public static final String ERR_WINDOW_ORDER = "The end of the time window must not be before its start.";
+    public static final String ERR_DUE_USAGE = "Usage: due <yyyy-MM-dd HHmm>";
+    public static final String ERR_UPCOMING_USAGE = "Usage: upcoming [count]";
+    public static final String ERR_SORT_USAGE = "Usage: sort <criteria>[,<criteria>...] [asc|desc]\nCriteria: date, description, status, type\nExample: sort type,date asc";
     public static final String ERR_INVALID_SORT_CRITERIA = "Invalid sort criteria. Use: date, description, status, type";
     public static final String ERR_INVALID_COMMAND = "OOPS!!! I'm sorry, but I don't know what that means :-(";
     public static final String ERR_UNKNOWN_COMMAND = "Unknown command: ";
     public static final String ERR_INVALID_TASK_NUMBER = "Invalid task number: ";
     public static final String ERR_TASK_NUMBER_MUST_BE_INT = "Task number must be an integer.";
+    public static final String ERR_TASK_ID_MUST_BE_INT = "Task id must be an integer, e.g. #12.";
+    public static final String ERR_UNKNOWN_TASK_ID = "No task has id #";
+    public static final String ERR_TASK_ID_NOT_ALLOWED = "Ids only last until Yoyo exits, so delete needs task numbers.";
+    public static final String ERR_INVALID_TASK_RANGE = "Invalid task range: ";
+    public static final String ERR_NO_TASKS_SELECTED = "No tasks match: ";
+    public static final String ERR_ALREADY_DONE = "The selected tasks are already done.";
+    public static final String ERR_ALREADY_NOT_DONE = "The selected tasks are already not done.";
     public static final String ERR_UNEXPECTED_ERROR = "Unexpected error: ";
     public static final String ERR_FAILED_TO_READ_FILE = "Failed to read file: ";
     public static final String ERR_FAILED_TO_SAVE = "Failed to save tasks: ";
     public static final String ERR_LINE_SKIPPED = "Line %d skipped: %s";
     public static final String ERR_UNRECOGNIZED_DATE = "Unrecognized date/time: \"%s\". Use yyyy-MM-dd or d/M/yyyy, optionally with time HHmm.";
 
+    // Upcoming tasks shown when no count is given
+    public static final int DEFAULT_UPCOMING_COUNT = 5;
+
     // Status symbols
     public static final char STATUS_DONE = 'X';
     public static final char STATUS_NOT_DONE = ' ';
 
     // Index constants
     public static final int MIN_TASK_INDEX = 1;
+    public static final String TASK_ID_PREFIX = "#";
+
+    // Selecting several tasks for mark, unmark and delete
+    public static final char SELECT_SEPARATOR = ',';
+    public static final char SELECT_RANGE = '-';
+    public static final String SELECT_DONE = "done";
+    public static final String SELECT_UNDONE = "undone";
+    public static final String SELECT_FIND_PREFIX = "find:";
 
     // Date/time format patterns
     public static final String DATETIME_FORMAT_STORAGE = "yyyy-MM-dd HHmm";
@@ -72,6 +100,56 @@ public final class Constants {
 
     // File paths
     public static final String DEFAULT_DATA_FILE = "data/yoyo.txt";
+    public static final String JOURNAL_FILE_SUFFIX = ".journal";
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    // Journal storage mode
+    public static final String PROP_JOURNAL = "yoyo.journal";
+    public static final String PROP_JOURNAL_COMPACT_THRESHOLD = "yoyo.journal.compactThreshold";
+    public static final int DEFAULT_JOURNAL_COMPACT_THRESHOLD = 1000;
+    public static final String ERR_JOURNAL_REPLAY_STOPPED = "Journal replay stopped at record %d: %s";
+
+    // Snapshot format
+    public static final String PROP_STORAGE_FORMAT = "yoyo.storage.format";
+    public static final String PROP_STORAGE_MAPPED = "yoyo.storage.mapped";
+    public static final String PROP_STORAGE_COLUMNAR = "yoyo.storage.columnar";
+    public static final String ERR_RECORD_SKIPPED = "Record %d skipped: %s";
+    public static final String ERR_RECORDS_DROPPED = "Records %d to %d dropped: %s";
+    // The longest description, in UTF-8 bytes, that the binary format can hold
+    public static final int MAX_DESCRIPTION_BYTES = 1 << 20;
+    // The largest data file, in bytes; positions within it are kept as ints
+    public static final long MAX_SNAPSHOT_BYTES = Integer.MAX_VALUE;
+    public static final String ERR_SNAPSHOT_TOO_LARGE = "Data file of %d bytes is over the limit of %d bytes";
+    public static final String ERR_SNAPSHOT_NOT_REPLACED = "Data file was too large to load, so it is not replaced";
+
+    // Write-behind persistence
+    public static final String PROP_WRITE_BEHIND = "yoyo.storage.writeBehind";
+    public static final String PROP_WRITE_BEHIND_MAX_DELAY_MS = "yoyo.storage.writeBehind.maxDelayMs";
+    public static final String PROP_WRITE_BEHIND_MAX_BATCH = "yoyo.storage.writeBehind.maxBatch";
+    public static final long DEFAULT_WRITE_BEHIND_MAX_DELAY_MS = 200;
+    public static final int DEFAULT_WRITE_BEHIND_MAX_BATCH = 500;
+
+    // Parallel loading
+    public static final String PROP_PARALLEL_LOAD_THRESHOLD = "yoyo.storage.parallelLoadThreshold";
+    public static final int DEFAULT_PARALLEL_LOAD_THRESHOLD_BYTES = 1 << 20;
+
+    // Parallel sorting and searching
+    public static final String PROP_PARALLEL_THRESHOLD = "yoyo.tasks.parallelThreshold";
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 100_000;
+
+    // Incremental saving
+    public static final String PROP_INCREMENTAL_SAVE = "yoyo.storage.incremental";
+
+    // Batch mode
+    public static final String ARG_BATCH = "--batch";
+    public static final String BATCH_STDIN = "-";
+    public static final String PROP_BATCH_CHECKPOINT = "yoyo.batch.checkpoint";
+    public static final int DEFAULT_BATCH_CHECKPOINT = 0;
+    public static final String ERR_BATCH_USAGE = "Usage: --batch <file|->";
+    public static final String ERR_BATCH_LINE = "Line %d: %s";
+    public static final String MSG_BATCH_CHECKPOINT = "Checkpoint: %d commands saved (%.0f commands/s)";
+    public static final String MSG_BATCH_SUMMARY = "%d commands in %.2f s (%.0f commands/s), %d failed";
+    public static final String MSG_BATCH_DESCRIPTIONS = "Description pool: %s";
 
     // Exit message
     public static final String MSG_GOODBYE = "Bye. Hope to see you again soon!";
@@ -95,12 +173,18 @@ public final class Constants {
             VIEW & SEARCH:
               • list                        - Show all tasks
               • find <keyword>              - Search tasks by keyword
-              • sort <criteria> [asc|desc]  - Sort tasks
+              • find ~<keyword>             - Search allowing typos, best matches first
+              • on <time> [/to <end>]       - Show events happening at a time or in a window
+              • due <time>                  - Show pending tasks due before a time
+              • upcoming [count]            - Show the next pending tasks (default 5)
+              • overdue                     - Show pending tasks whose date has passed
+              • sort <criteria> [asc|desc]  - Sort tasks; combine criteria like type,date
 
             TASK MODIFICATION:
-              • mark <number>               - Mark task as done
-              • unmark <number>             - Mark task as not done
+              • mark <number|#id>           - Mark task as done
+              • unmark <number|#id>         - Mark task as not done
               • delete <number>             - Delete a task
+                Several at once: 1-5,8 | done | undone | find:<keyword>
 
 SYSTEM COMMANDS:
   • help                        - Show this help message
@@ -3,16 +3,38 @@ package yoyo.util;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Utility class for parsing flexible date/time strings.
  */
 public final class DateTimeUtil {
 
+    private static final DateTimeFormatter[] DATE_TIME_FORMATS = {
+        DateTimeFormatter.ofPattern(Constants.DATETIME_FORMAT_STORAGE),
+        DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT + " HHmm"),
+        DateTimeFormatter.ofPattern(Constants.DATETIME_FORMAT_OUTPUT), // as written by toString()
+    };
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+        DateTimeFormatter.ISO_LOCAL_DATE, // yyyy-MM-dd
+        DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT), // 2/12/2019
+    };
+
+    // Recently parsed strings, least recently used first; the results are immutable
+    private static final int MEMO_CAPACITY = 256;
+    private static final Map<String, LocalDateTime> MEMO = new LinkedHashMap<>(MEMO_CAPACITY * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+            return size() > MEMO_CAPACITY;
+        }
+    };
+
     private DateTimeUtil() {
         // Utility class
     }
@@ -21,54 +43,136 @@ public final class DateTimeUtil {
      * Parses a flexible date/time string into a LocalDateTime. Supports various
      * formats like yyyy-MM-dd, d/M/yyyy, with optional time.
      *
+     * <p>The common formats "yyyy-MM-dd HHmm", "d/M/yyyy HHmm", "yyyy-MM-dd"
+     * and "d/M/yyyy" are recognized by scanning the digits directly, without
+     * any exceptions; other input, including dates that need a formatter's
+     * rules such as the 30th of February, goes through the formatters. The
+     * results for the last few hundred distinct strings are remembered.
+     *
      * @param raw the raw date/time string
      * @return the parsed LocalDateTime
      * @throws IllegalArgumentException if parsing fails
      */
     public static LocalDateTime parseFlexibleDateTime(String raw) {
+        synchronized (MEMO) {
+            LocalDateTime known = MEMO.get(raw);
+            if (known != null) {
+                return known;
+            }
+        }
         String s = raw.trim();
+        LocalDateTime parsed = scan(s);
+        if (parsed == null) {
+            parsed = parseWithFormatters(s, raw);
+        }
+        synchronized (MEMO) {
+            MEMO.put(raw, parsed);
+        }
+        return parsed;
+    }
 
-        // Try datetime patterns first using streams
-        Optional<LocalDateTime> dateTimeResult = Arrays.stream(new DateTimeFormatter[]{
-            DateTimeFormatter.ofPattern(Constants.DATETIME_FORMAT_STORAGE),
-            DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT + " HHmm")
-        })
-                .map(formatter -> {
-                    try {
-                        return LocalDateTime.parse(s, formatter);
-                    } catch (DateTimeParseException e) {
-                        return null;
-                    }
-                })
-                .filter(result -> result != null)
-                .findFirst();
+    /**
+     * Recognizes the common formats, accepting exactly what their formatters
+     * would and producing the same result.
+     *
+     * @return the date/time, or null to leave the string to the formatters
+     */
+    private static LocalDateTime scan(String s) {
+        int year;
+        int month;
+        int day;
+        int i;
+        if (s.length() >= 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+            year = digits(s, 0, 4);
+            month = digits(s, 5, 7);
+            day = digits(s, 8, 10);
+            i = 10;
+        } else {
+            // d/M/yyyy, with one or two digits for the day and month
+            int slash = s.indexOf('/');
+            int secondSlash = slash < 0 ? -1 : s.indexOf('/', slash + 1);
+            if (slash < 1 || slash > 2 || secondSlash - slash < 2 || secondSlash - slash > 3
+                    || s.length() < secondSlash + 5) {
+                return null;
+            }
+            day = digits(s, 0, slash);
+            month = digits(s, slash + 1, secondSlash);
+            year = digits(s, secondSlash + 1, secondSlash + 5);
+            i = secondSlash + 5;
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        if (i == s.length()) {
+            return LocalDateTime.of(year, month, day, 0, 0);
+        }
+        if (s.length() != i + 5 || s.charAt(i) != ' ') {
+            return null;
+        }
+        int hour = digits(s, i + 1, i + 3);
+        int minute = digits(s, i + 3, i + 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
 
-        if (dateTimeResult.isPresent()) {
-            return dateTimeResult.get();
+    // The value of the decimal digits in s[from, to), or -1 if any is not a digit
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
         }
+        return value;
+    }
 
-        // Then try date-only (assume 00:00 time) using streams
-        Optional<LocalDateTime> dateResult = Arrays.stream(new DateTimeFormatter[]{
-            DateTimeFormatter.ISO_LOCAL_DATE, // yyyy-MM-dd
-            DateTimeFormatter.ofPattern(Constants.DATE_FORMAT_SHORT) // 2/12/2019
-        })
-                .map(formatter -> {
-                    try {
-                        LocalDate d = LocalDate.parse(s, formatter);
-                        return LocalDateTime.of(d, LocalTime.MIDNIGHT);
-                    } catch (DateTimeParseException e) {
-                        return null;
-                    }
-                })
-                .filter(result -> result != null)
-                .findFirst();
+    private static LocalDateTime parseWithFormatters(String s, String raw) {
+        // Try datetime patterns first
+        for (DateTimeFormatter formatter : DATE_TIME_FORMATS) {
+            try {
+                return LocalDateTime.parse(s, formatter);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
 
-        if (dateResult.isPresent()) {
-            return dateResult.get();
+        // Then try date-only (assume 00:00 time)
+        for (DateTimeFormatter formatter : DATE_FORMATS) {
+            try {
+                return LocalDateTime.of(LocalDate.parse(s, formatter), LocalTime.MIDNIGHT);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
         }
 
         // Fallback: let the exception explain the expected formats
         throw new IllegalArgumentException(
                 String.format(Constants.ERR_UNRECOGNIZED_DATE, raw));
     }
+
+    /**
+     * Converts a date/time to whole minutes since the epoch (UTC, no zone
+     * shifting), the compact representation used by binary storage formats.
+     *
+     * @param dateTime the date/time to convert
+     * @return the number of minutes since 1970-01-01T00:00
+     */
+    public static long toEpochMinutes(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Converts minutes since the epoch back into a date/time.
+     *
+     * @param epochMinutes the number of minutes since 1970-01-01T00:00
+     * @return the corresponding LocalDateTime
+     */
+    public static LocalDateTime fromEpochMinutes(long epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
 }
@@ -0,0 +1,83 @@
+package yoyo.parser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import yoyo.exception.YoyoException;
+import yoyo.task.TaskList;
+import yoyo.task.Todo;
+import yoyo.util.Constants;
+
+public class ParserTest {
+
+    @Test
+    public void checkDescription_atLimit_accepted() throws YoyoException {
+        String description = "a".repeat(Constants.MAX_DESCRIPTION_BYTES);
+        assertEquals(description, Parser.checkDescription(description));
+    }
+
+    @Test
+    public void checkDescription_overLimit_exceptionThrown() {
+        // Each of these takes two bytes in UTF-8
+        String description = "é".repeat(Constants.MAX_DESCRIPTION_BYTES / 2 + 1);
+        assertThrows(YoyoException.class, () -> Parser.checkDescription(description));
+        assertThrows(IllegalArgumentException.class, () -> new Todo(description));
+    }
+
+    private static TaskList sampleList() {
+        TaskList tasks = new TaskList();
+        for (String description : new String[] {"read book", "return book", "buy milk", "call mum", "read paper"}) {
+            tasks.add(new Todo(description));
+        }
+        tasks.mark(2);
+        tasks.mark(4);
+        return tasks;
+    }
+
+    @Test
+    public void parseTaskRefs_rangesAndIndexes_sortedAndDistinct() throws YoyoException {
+        TaskList tasks = sampleList();
+        assertArrayEquals(new int[] {1, 2, 3, 5}, Parser.parseTaskRefs("5, 1-3,2", tasks));
+        assertArrayEquals(new int[] {4}, Parser.parseTaskRefs(" 4 ", tasks));
+        assertArrayEquals(new int[] {3}, Parser.parseTaskRefs("3-3", tasks));
+    }
+
+    @Test
+    public void parseTaskRefs_ids_resolvedToIndexes() throws YoyoException {
+        TaskList tasks = sampleList();
+        int id = tasks.idAt(4);
+        tasks.remove(1);
+        assertArrayEquals(new int[] {1, 3}, Parser.parseTaskRefs("#" + id + ",1", tasks));
+    }
+
+    @Test
+    public void parseTaskRefs_predicates_matchingTasks() throws YoyoException {
+        TaskList tasks = sampleList();
+        assertArrayEquals(new int[] {2, 4}, Parser.parseTaskRefs("done", tasks));
+        assertArrayEquals(new int[] {1, 3, 5}, Parser.parseTaskRefs("UNDONE", tasks));
+        assertArrayEquals(new int[] {1, 5}, Parser.parseTaskRefs("find: read", tasks));
+    }
+
+    @Test
+    public void parseTaskRefs_invalidSelection_exceptionThrown() {
+        TaskList tasks = sampleList();
+        for (String selection : new String[] {"", "0", "6", "-1", "x", "1,", "1-6", "4-2", "1-", "#x", "#999", "find:", "find:zebra"}) {
+            assertThrows(YoyoException.class, () -> Parser.parseTaskRefs(selection, tasks), selection);
+        }
+        tasks.unmark(2);
+        tasks.unmark(4);
+        assertThrows(YoyoException.class, () -> Parser.parseTaskRefs("done", tasks));
+    }
+
+    @Test
+    public void parseTaskNumbers_id_exceptionThrown() throws YoyoException {
+        TaskList tasks = sampleList();
+        int id = tasks.idAt(3);
+        assertThrows(YoyoException.class, () -> Parser.parseTaskNumbers("#" + id, tasks));
+        assertThrows(YoyoException.class, () -> Parser.parseTaskNumbers("1,#" + id, tasks));
+        assertArrayEquals(new int[] {1, 2, 3}, Parser.parseTaskNumbers("1-3", tasks));
+    }
+}
@@ -0,0 +1,130 @@
+package yoyo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yoyo.task.Task;
+import yoyo.task.Todo;
+
+public class JournalTest {
+
+    private static final ByteBuffer SNAPSHOT = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void replay_tornTail_keepsWholeRecordsAndTruncates() throws IOException {
+        Path file = dir.resolve("tasks.journal");
+        Journal journal = started(file);
+        for (int i = 1; i <= 3; i++) {
+            journal.onAdded(i, new Todo("task " + i));
+        }
+        journal.append(journal.drainPending(), false);
+        long fullLength = Files.size(file);
+        truncate(file, fullLength - 2);
+
+        List<Task> tasks = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        Journal reopened = new Journal(file);
+        reopened.replay(SNAPSHOT.remaining(), Journal.checksum(SNAPSHOT), tasks, warnings::add);
+
+        assertEquals(List.of("[T][ ] task 1", "[T][ ] task 2"), strings(tasks));
+        assertTrue(warnings.isEmpty());
+        assertTrue(Files.size(file) < fullLength - 2);
+
+        // Appends after the truncation are read back in order
+        reopened.onAdded(3, new Todo("task 3 again"));
+        reopened.append(reopened.drainPending(), false);
+        tasks.clear();
+        new Journal(file).replay(SNAPSHOT.remaining(), Journal.checksum(SNAPSHOT), tasks, warnings::add);
+        assertEquals(List.of("[T][ ] task 1", "[T][ ] task 2", "[T][ ] task 3 again"), strings(tasks));
+    }
+
+    @Test
+    public void replay_emptyDescription_warnsAndTruncates() throws IOException {
+        Path file = dir.resolve("tasks.journal");
+        Journal journal = started(file);
+        journal.onAdded(1, new Todo("kept"));
+        journal.append(journal.drainPending(), false);
+        long validLength = Files.size(file);
+
+        // An insert record whose description is zero bytes long
+        ByteBuffer corrupt = ByteBuffer.allocate(1 + Integer.BYTES + 1 + Integer.BYTES);
+        corrupt.put((byte) 'I').putInt(2).put(TaskCodec.TYPE_TODO).putInt(0).flip();
+        journal.append(corrupt.array(), false);
+
+        List<Task> tasks = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        new Journal(file).replay(SNAPSHOT.remaining(), Journal.checksum(SNAPSHOT), tasks, warnings::add);
+
+        assertEquals(List.of("[T][ ] kept"), strings(tasks));
+        assertEquals(1, warnings.size());
+        assertEquals(validLength, Files.size(file));
+    }
+
+    @Test
+    public void replay_removeOutOfRange_stopsAndTruncates() throws IOException {
+        Path file = dir.resolve("tasks.journal");
+        Journal journal = started(file);
+        journal.onAdded(1, new Todo("kept"));
+        journal.append(journal.drainPending(), false);
+        long validLength = Files.size(file);
+        journal.onRemoved(5, new Todo("missing"));
+        journal.onAdded(2, new Todo("after the bad record"));
+        journal.append(journal.drainPending(), false);
+
+        List<Task> tasks = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        new Journal(file).replay(SNAPSHOT.remaining(), Journal.checksum(SNAPSHOT), tasks, warnings::add);
+
+        assertEquals(List.of("[T][ ] kept"), strings(tasks));
+        assertEquals(1, warnings.size());
+        assertEquals(validLength, Files.size(file));
+    }
+
+    @Test
+    public void replay_otherSnapshot_ignoresJournal() throws IOException {
+        Path file = dir.resolve("tasks.journal");
+        Journal journal = started(file);
+        journal.onAdded(1, new Todo("stale"));
+        journal.append(journal.drainPending(), false);
+
+        List<Task> tasks = new ArrayList<>();
+        new Journal(file).replay(SNAPSHOT.remaining() + 1, Journal.checksum(SNAPSHOT), tasks, w -> { });
+
+        assertTrue(tasks.isEmpty());
+    }
+
+    private static Journal started(Path file) throws IOException {
+        Journal journal = new Journal(file);
+        journal.reset(SNAPSHOT.duplicate(), false);
+        return journal;
+    }
+
+    private static void truncate(Path file, long length) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(length);
+        }
+    }
+
+    private static List<String> strings(List<Task> tasks) {
+        List<String> out = new ArrayList<>();
+        for (Task task : tasks) {
+            out.add(task.toString());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,134 @@
+package yoyo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yoyo.task.Task;
+import yoyo.task.TaskList;
+import yoyo.task.Todo;
+import yoyo.util.Constants;
+
+public class SnapshotPatcherTest {
+
+    // Enough todos for several 64 KiB blocks
+    private static final int TASKS = 12_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void binary_patchAfterLoad_inPlaceAndReloaded() throws IOException {
+        patchAfterLoad(StorageFormat.BINARY, false);
+    }
+
+    @Test
+    public void mapped_patchAfterLoad_inPlaceAndReloaded() throws IOException {
+        patchAfterLoad(StorageFormat.BINARY, true);
+    }
+
+    @Test
+    public void text_patchAfterLoad_inPlaceAndReloaded() throws IOException {
+        patchAfterLoad(StorageFormat.TEXT, false);
+    }
+
+    @Test
+    public void binary_corruptedMiddleBlock_laterBlocksKept() throws IOException {
+        Path file = dir.resolve("tasks.bin");
+        List<String> expected = write(file, StorageFormat.BINARY);
+        corruptByteAt(file, (int) (Files.size(file) / 2));
+
+        for (boolean mapped : new boolean[] {false, true}) {
+            Storage.LoadResult result = new Storage(file.toString(), options(StorageFormat.BINARY)
+                    .withMapped(mapped)).load();
+            List<String> loaded = SnapshotRoundTripTest.strings(result.tasks);
+
+            assertEquals(1, result.warnings.size(), result.warnings.toString());
+            assertTrue(loaded.size() < expected.size());
+            assertEquals(expected.get(0), loaded.get(0));
+            assertEquals(expected.get(expected.size() - 1), loaded.get(loaded.size() - 1));
+            assertTrue(expected.containsAll(loaded));
+        }
+    }
+
+    @Test
+    public void load_overSizeLimit_rejectedAndNotReplaced() throws IOException {
+        Path file = dir.resolve("tasks.bin");
+        write(file, StorageFormat.BINARY);
+        // A sparse tail takes the file past the limit without using the disk space
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(1), Constants.MAX_SNAPSHOT_BYTES);
+        }
+        long size = Files.size(file);
+
+        for (boolean mapped : new boolean[] {false, true}) {
+            Storage storage = new Storage(file.toString(), options(StorageFormat.BINARY).withMapped(mapped));
+            Storage.LoadResult result = storage.load();
+
+            assertEquals(1, result.warnings.size(), result.warnings.toString());
+            assertTrue(result.tasks.isEmpty());
+            assertThrows(IOException.class, () -> storage.save(List.of(new Todo("new"))));
+            assertEquals(size, Files.size(file));
+        }
+    }
+
+    private void patchAfterLoad(StorageFormat format, boolean mapped) throws IOException {
+        Path file = dir.resolve("tasks." + format);
+        List<String> expected = new ArrayList<>(write(file, format));
+        Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+
+        Storage storage = new Storage(file.toString(), options(format).withMapped(mapped));
+        Storage.LoadResult result = storage.load();
+        assertTrue(result.warnings.isEmpty());
+        TaskList tasks = TaskList.backedBy(result.tasks);
+        storage.attach(tasks);
+        for (int i = 1; i <= TASKS; i += 997) {
+            tasks.mark(i);
+        }
+        tasks.unmark(1);
+        tasks.add(new Todo("added after load"));
+        storage.persist(tasks);
+
+        // Patched in place instead of being replaced by a rewritten file
+        assertEquals(fileKey, Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        expected = SnapshotRoundTripTest.strings(tasks.snapshot());
+        Storage.LoadResult reloaded = new Storage(file.toString(), options(format)).load();
+        assertTrue(reloaded.warnings.isEmpty(), reloaded.warnings.toString());
+        assertEquals(expected, SnapshotRoundTripTest.strings(reloaded.tasks));
+    }
+
+    private static StorageOptions options(StorageFormat format) {
+        return StorageOptions.defaults().withFormat(format).withIncrementalSave(true);
+    }
+
+    private static List<String> write(Path file, StorageFormat format) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(new Todo("task number " + i));
+        }
+        new Storage(file.toString(), options(format)).save(tasks);
+        return SnapshotRoundTripTest.strings(tasks);
+    }
+
+    private static void corruptByteAt(Path file, int position) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            ch.write(b.clear(), position);
+        }
+    }
+}
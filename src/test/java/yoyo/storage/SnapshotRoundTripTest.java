@@ -0,0 +1,131 @@
+package yoyo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import yoyo.task.Deadline;
+import yoyo.task.Event;
+import yoyo.task.Task;
+import yoyo.task.Todo;
+
+public class SnapshotRoundTripTest {
+
+    // 2019-12-02 18:00 in minutes since the epoch
+    private static final long DEC_2_2019 = 26_280_000L;
+
+    @Test
+    public void text_encodeThenDecode_sameTasks() throws IOException {
+        List<Task> tasks = sampleTasks();
+        List<String> warnings = new ArrayList<>();
+
+        List<Task> decoded = decodeText(TextSnapshot.encode(tasks, null), warnings);
+
+        assertEquals(strings(tasks), strings(decoded));
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    public void binary_encodeThenDecode_sameTasks() throws IOException {
+        List<Task> tasks = sampleTasks();
+        List<String> warnings = new ArrayList<>();
+
+        List<Task> decoded = decodeBinary(BinarySnapshot.encode(tasks, null), warnings);
+
+        assertEquals(strings(tasks), strings(decoded));
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    public void textToBinaryToText_sameBytes() throws IOException {
+        List<String> warnings = new ArrayList<>();
+        byte[] text = TextSnapshot.encode(sampleTasks(), null);
+
+        byte[] binary = BinarySnapshot.encode(decodeText(text, warnings), null);
+        byte[] back = TextSnapshot.encode(decodeBinary(binary, warnings), null);
+
+        assertEquals(new String(text, StandardCharsets.UTF_8), new String(back, StandardCharsets.UTF_8));
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    public void binary_manyBlocks_sameTasks() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            tasks.add(new Todo("task number " + i));
+        }
+        List<String> warnings = new ArrayList<>();
+
+        List<Task> decoded = decodeBinary(BinarySnapshot.encode(tasks, null), warnings);
+
+        assertEquals(strings(tasks), strings(decoded));
+        assertTrue(warnings.isEmpty());
+    }
+
+    @Test
+    public void decode_recordsLayoutOfEncode() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            tasks.add(new Todo("task number " + i));
+        }
+        tasks.addAll(sampleTasks());
+
+        SnapshotLayout written = new SnapshotLayout();
+        SnapshotLayout read = new SnapshotLayout();
+        byte[] text = TextSnapshot.encode(tasks, written);
+        TextSnapshot.decode(new ByteArrayInputStream(text), task -> { }, warning -> { }, true, read);
+        assertSameLayout(written, read);
+
+        written = new SnapshotLayout();
+        read = new SnapshotLayout();
+        byte[] binary = BinarySnapshot.encode(tasks, written);
+        BinarySnapshot.decode(new ByteArrayInputStream(binary), task -> { }, warning -> { }, read);
+        assertSameLayout(written, read);
+        assertEquals(written.blockOf(written.length() - 1), read.blockOf(read.length() - 1));
+    }
+
+    private static void assertSameLayout(SnapshotLayout expected, SnapshotLayout actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.statusOffset(i), actual.statusOffset(i));
+        }
+    }
+
+    static List<Task> sampleTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("return book | twice", true));
+        tasks.add(new Deadline("submit report", DEC_2_2019));
+        tasks.add(new Event("project meeting", DEC_2_2019, DEC_2_2019 + 90));
+        tasks.add(new Todo("café ☕ with ünïcode"));
+        return tasks;
+    }
+
+    static List<Task> decodeText(byte[] raw, List<String> warnings) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        TextSnapshot.decode(new ByteArrayInputStream(raw), tasks::add, warnings::add, false, null);
+        return tasks;
+    }
+
+    static List<Task> decodeBinary(byte[] raw, List<String> warnings) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        BinarySnapshot.decode(new ByteArrayInputStream(raw), tasks::add, warnings::add, null);
+        return tasks;
+    }
+
+    static List<String> strings(List<Task> tasks) {
+        List<String> out = new ArrayList<>();
+        for (Task task : tasks) {
+            out.add(task.toString());
+        }
+        return out;
+    }
+}
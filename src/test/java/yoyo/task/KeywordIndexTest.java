@@ -0,0 +1,81 @@
+package yoyo.task;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class KeywordIndexTest {
+
+    private static final String LETTERS = "abcdeilmnorst";
+
+    @Test
+    public void findSimilar_shortAndLongPieces_sameAsComparingEveryWord() {
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tasks.add(new Todo(randomWord(random, 1, 9) + " " + randomWord(random, 1, 9)));
+        }
+        KeywordIndex index = new KeywordIndex(tasks, new IdIndex(tasks.size()));
+
+        for (int q = 0; q < 300; q++) {
+            String piece = randomWord(random, 1, 11);
+            assertArrayEquals(bruteForce(tasks, piece), index.findSimilar(piece), piece);
+        }
+    }
+
+    @Test
+    public void findSimilar_typo_found() {
+        List<Task> tasks = new ArrayList<>(List.of(new Todo("buy milk"), new Todo("read book")));
+        KeywordIndex index = new KeywordIndex(tasks, new IdIndex(tasks.size()));
+
+        assertArrayEquals(new int[]{1}, index.findSimilar("mlk"));
+        assertArrayEquals(new int[]{2}, index.findSimilar("bokk"));
+    }
+
+    // Ranks every task by its closest word, the way findSimilar defines a match
+    private static int[] bruteForce(List<Task> tasks, String piece) {
+        int maxEdits = piece.length() <= 2 ? 0 : piece.length() <= 5 ? 1 : 2;
+        List<Integer> found = new ArrayList<>();
+        for (int d = 0; d <= maxEdits; d++) {
+            for (int i = 0; i < tasks.size(); i++) {
+                int best = Integer.MAX_VALUE;
+                for (String word : tasks.get(i).getDescription().split(" ")) {
+                    best = Math.min(best, substringDistance(piece, word));
+                }
+                if (best == d) {
+                    found.add(i + 1);
+                }
+            }
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int substringDistance(String piece, String word) {
+        int[][] edits = new int[piece.length() + 1][word.length() + 1];
+        for (int i = 1; i <= piece.length(); i++) {
+            edits[i][0] = i;
+            for (int j = 1; j <= word.length(); j++) {
+                int substitute = edits[i - 1][j - 1] + (piece.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1);
+                edits[i][j] = Math.min(substitute, Math.min(edits[i - 1][j], edits[i][j - 1]) + 1);
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        for (int distance : edits[piece.length()]) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    private static String randomWord(Random random, int minLength, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+}
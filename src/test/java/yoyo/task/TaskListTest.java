@@ -0,0 +1,168 @@
+package yoyo.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskListTest {
+
+    // Records every listener call as a line, so that two lists can be compared
+    private static class Recorder implements TaskList.Listener {
+
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void onAdded(int idx1Based, Task task) {
+            calls.add("added " + idx1Based + " " + task);
+        }
+
+        @Override
+        public void onRemoved(int idx1Based, Task task) {
+            calls.add("removed " + idx1Based + " " + task);
+        }
+
+        @Override
+        public void onStatusChanged(int idx1Based, Task task) {
+            calls.add("status " + idx1Based + " " + task);
+        }
+    }
+
+    private static TaskList sampleList(Recorder recorder) {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 8; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        tasks.mark(2);
+        tasks.mark(5);
+        tasks.addListener(recorder);
+        return tasks;
+    }
+
+    @Test
+    public void removeAll_sameAsRemovingOneByOne() {
+        int[] selected = {1, 3, 4, 8};
+        Recorder bulkCalls = new Recorder();
+        TaskList bulk = sampleList(bulkCalls);
+        Recorder singleCalls = new Recorder();
+        TaskList single = sampleList(singleCalls);
+
+        List<Task> removed = bulk.removeAll(selected);
+        List<Task> expected = new ArrayList<>();
+        for (int i = selected.length - 1; i >= 0; i--) {
+            expected.add(0, single.remove(selected[i]));
+        }
+
+        assertEquals(expected.toString(), removed.toString());
+        assertEquals(single.asList().toString(), bulk.asList().toString());
+        assertEquals(singleCalls.calls, bulkCalls.calls);
+        for (int i = 1; i <= bulk.size(); i++) {
+            assertEquals(single.idAt(i), bulk.idAt(i));
+        }
+    }
+
+    @Test
+    public void markAll_sameAsMarkingOneByOne() {
+        int[] selected = {1, 3, 6};
+        Recorder bulkCalls = new Recorder();
+        TaskList bulk = sampleList(bulkCalls);
+        Recorder singleCalls = new Recorder();
+        TaskList single = sampleList(singleCalls);
+
+        List<Task> marked = bulk.markAll(selected);
+        for (int idx : selected) {
+            single.mark(idx);
+        }
+
+        assertEquals(3, marked.size());
+        assertTrue(marked.stream().allMatch(Task::isDone));
+        assertEquals(single.asList().toString(), bulk.asList().toString());
+        assertEquals(singleCalls.calls, bulkCalls.calls);
+    }
+
+    @Test
+    public void markAll_alreadyDone_skipped() {
+        Recorder calls = new Recorder();
+        TaskList tasks = sampleList(calls);
+
+        List<Task> marked = tasks.markAll(new int[] {2, 3, 5});
+
+        assertEquals(List.of(tasks.get(3)), marked);
+        assertEquals(List.of("status 3 " + tasks.get(3)), calls.calls);
+        assertTrue(tasks.markAll(new int[] {2, 3, 5}).isEmpty());
+        assertEquals(1, calls.calls.size());
+    }
+
+    @Test
+    public void unmarkAll_notDone_skipped() {
+        Recorder calls = new Recorder();
+        TaskList tasks = sampleList(calls);
+
+        List<Task> unmarked = tasks.unmarkAll(new int[] {1, 2, 3, 4, 5});
+
+        assertEquals(List.of(tasks.get(2), tasks.get(5)), unmarked);
+        assertEquals(List.of("status 2 " + tasks.get(2), "status 5 " + tasks.get(5)), calls.calls);
+        assertTrue(tasks.asList().stream().noneMatch(Task::isDone));
+    }
+
+    @Test
+    public void mark_alreadyDone_listenersNotCalled() {
+        Recorder calls = new Recorder();
+        TaskList tasks = sampleList(calls);
+
+        tasks.mark(2);
+        tasks.unmark(1);
+
+        assertTrue(calls.calls.isEmpty());
+    }
+
+    @Test
+    public void dueBefore_markedAndUnmarked_onlyPendingReturned() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        TaskList tasks = new TaskList();
+        tasks.add(new Deadline("report", now.minusDays(2)));
+        tasks.add(new Todo("read book"));
+        tasks.add(new Event("meeting", now.minusDays(1), now.plusDays(1)));
+        tasks.add(new Deadline("essay", now.plusDays(3)));
+        assertEquals(2, tasks.dueBefore(now).size());
+
+        tasks.mark(1);
+        assertEquals(List.of(tasks.get(3)), tasksOf(tasks.dueBefore(now)));
+        tasks.markAll(new int[] {3, 4});
+        assertTrue(tasks.dueBefore(now).isEmpty());
+        assertTrue(tasks.upcoming(now, 5).isEmpty());
+
+        tasks.unmark(1);
+        tasks.unmark(4);
+        assertEquals(List.of(tasks.get(1)), tasksOf(tasks.dueBefore(now)));
+        assertEquals(List.of(tasks.get(4)), tasksOf(tasks.upcoming(now, 5)));
+    }
+
+    @Test
+    public void find_afterSortAndRemove_currentPositionsAndStableIds() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("buy milk"));
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("buy bread"));
+        int breadId = tasks.find("bread").get(0).id();
+
+        tasks.sort("description", true);
+        tasks.remove(2);
+        tasks.add(new Todo("buy apples"));
+
+        List<TaskList.Match> found = tasks.find("buy");
+        assertEquals(List.of(1, 2), found.stream().map(TaskList.Match::position).toList());
+        assertEquals(List.of("buy apples", "buy bread"),
+                found.stream().map(match -> match.task().getDescription()).toList());
+        assertEquals(breadId, found.get(1).id());
+        assertEquals(2, tasks.positionOf(breadId));
+    }
+
+    private static List<Task> tasksOf(List<TaskList.Match> matches) {
+        return matches.stream().map(TaskList.Match::task).toList();
+    }
+}